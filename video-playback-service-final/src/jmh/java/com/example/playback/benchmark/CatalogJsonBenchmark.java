@@ -0,0 +1,121 @@
+package com.example.playback.benchmark;
+
+import com.example.playback.dto.catalog.CarouselResponse;
+import com.example.playback.dto.catalog.ContentResponse;
+import com.example.playback.dto.catalog.MediaResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import tools.jackson.core.type.TypeReference;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson binding of catalog-service payloads: a content item with its media, and the
+ * carousel list, in both directions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CatalogJsonBenchmark {
+
+    private static final TypeReference<List<CarouselResponse>> CAROUSEL_LIST = new TypeReference<>() {
+    };
+
+    @Param({"1", "10"})
+    public int mediaCount;
+
+    @Param({"20"})
+    public int carouselSize;
+
+    private JsonMapper jsonMapper;
+    private ContentResponse content;
+    private List<CarouselResponse> carousel;
+    private byte[] contentJson;
+    private byte[] carouselJson;
+
+    @Setup
+    public void setUp() {
+        jsonMapper = JsonMapper.builder().build();
+        Instant now = Instant.parse("2025-06-01T12:00:00Z");
+
+        content = new ContentResponse();
+        content.setId(42L);
+        content.setTitle("The Long Journey Home");
+        content.setDescription("A family drama following three generations across a single summer. ".repeat(4));
+        content.setStatus("PUBLISHED");
+        content.setType("MOVIE");
+        content.setCategoryId(7L);
+        content.setCategoryName("Drama");
+        content.setThumbnailUrl("https://cdn.example.com/thumbnails/42.jpg");
+        content.setVideoUrl("https://cdn.example.com/videos/42/master.m3u8");
+        content.setDuration(6840);
+        content.setActive(true);
+        content.setCreatedAt(now);
+        content.setUpdatedAt(now);
+        List<MediaResponse> media = new ArrayList<>();
+        for (int i = 0; i < mediaCount; i++) {
+            MediaResponse item = new MediaResponse();
+            item.setId((long) i);
+            item.setLanguage("lang-" + i);
+            item.setTitle("The Long Journey Home (" + i + ")");
+            item.setDescription("Localized description " + i);
+            item.setThumbnailUrl("https://cdn.example.com/thumbnails/42-" + i + ".jpg");
+            item.setVideoUrl("https://cdn.example.com/videos/42/" + i + "/master.m3u8");
+            item.setSubtitleUrl("https://cdn.example.com/subtitles/42/" + i + ".vtt");
+            item.setCreatedAt(now);
+            item.setUpdatedAt(now);
+            media.add(item);
+        }
+        content.setMedia(media);
+
+        carousel = new ArrayList<>();
+        for (int i = 0; i < carouselSize; i++) {
+            CarouselResponse item = new CarouselResponse();
+            item.setId((long) i);
+            item.setContentId(100L + i);
+            item.setTitle("Featured " + i);
+            item.setSubtitle("Now streaming");
+            item.setType("HERO");
+            item.setOrder(i);
+            item.setActive(true);
+            item.setContentTitle("Content " + i);
+            item.setThumbnailUrl("https://cdn.example.com/carousel/" + i + ".jpg");
+            item.setCreatedAt(now);
+            item.setUpdatedAt(now);
+            carousel.add(item);
+        }
+
+        contentJson = jsonMapper.writeValueAsBytes(content);
+        carouselJson = jsonMapper.writeValueAsBytes(carousel);
+    }
+
+    @Benchmark
+    public byte[] serializeContent() {
+        return jsonMapper.writeValueAsBytes(content);
+    }
+
+    @Benchmark
+    public ContentResponse deserializeContent() {
+        return jsonMapper.readValue(contentJson, ContentResponse.class);
+    }
+
+    @Benchmark
+    public byte[] serializeCarousel() {
+        return jsonMapper.writeValueAsBytes(carousel);
+    }
+
+    @Benchmark
+    public List<CarouselResponse> deserializeCarousel() {
+        return jsonMapper.readValue(carouselJson, CAROUSEL_LIST);
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.playback.benchmark;
+
+import com.example.playback.dto.ProgressRequest;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The work done on every progress ping before it reaches the write buffer: binding the JSON
+ * body and running Bean Validation, for a valid payload and one violating every constraint.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ProgressRequestBenchmark {
+
+    @Param({"valid", "invalid"})
+    public String payload;
+
+    private byte[] json;
+    private ProgressRequest request;
+    private JsonMapper jsonMapper;
+    private ValidatorFactory validatorFactory;
+    private Validator validator;
+
+    @Setup
+    public void setUp() {
+        json = ("valid".equals(payload)
+                ? "{\"userId\":\"user_12345\",\"videoId\":\"movie-1080p\",\"watchedSeconds\":1834,\"totalSeconds\":5400}"
+                : "{\"userId\":\"\",\"videoId\":\"../etc/passwd\",\"watchedSeconds\":-5,\"totalSeconds\":0}")
+                .getBytes(StandardCharsets.UTF_8);
+        jsonMapper = JsonMapper.builder().build();
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        validator = validatorFactory.getValidator();
+        request = jsonMapper.readValue(json, ProgressRequest.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Benchmark
+    public ProgressRequest deserialize() {
+        return jsonMapper.readValue(json, ProgressRequest.class);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<ProgressRequest>> validate() {
+        return validator.validate(request);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<ProgressRequest>> deserializeAndValidate() {
+        return validator.validate(jsonMapper.readValue(json, ProgressRequest.class));
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.playback.benchmark;
+
+import com.example.playback.storage.RangeReader;
+import com.example.playback.streaming.ByteRange;
+import com.example.playback.streaming.DirectBufferPool;
+import com.example.playback.streaming.RangeTransfer;
+import com.example.playback.streaming.SegmentCache;
+import com.example.playback.util.Bulkhead;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link RangeTransfer} throughput from a file to a response channel, either through
+ * pooled buffers from the page cache ({@code cache=false}) or from hot off-heap segments.
+ * The target copies into a heap buffer, as the servlet output buffer does; the network is
+ * not involved. Bytes per second is operations per second times {@code rangeSize}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class RangeCopyBenchmark {
+
+    private static final long FILE_LENGTH = 64L * 1024 * 1024;
+
+    @Param({"65536", "1048576", "16777216"})
+    public long rangeSize;
+
+    @Param({"false", "true"})
+    public boolean cache;
+
+    private Path file;
+    private RangeReader reader;
+    private RangeTransfer rangeTransfer;
+
+    /**
+     * Stands in for the servlet output stream, which copies into its own buffer.
+     */
+    @State(Scope.Thread)
+    public static class Sink implements WritableByteChannel {
+
+        private final byte[] buffer = new byte[64 * 1024];
+        long written;
+
+        @Override
+        public int write(ByteBuffer src) {
+            int count = src.remaining();
+            while (src.hasRemaining()) {
+                src.get(buffer, 0, Math.min(src.remaining(), buffer.length));
+            }
+            written += count;
+            return count;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = Files.createTempFile("range-copy", ".mp4");
+        byte[] block = new byte[1024 * 1024];
+        ThreadLocalRandom.current().nextBytes(block);
+        try (FileChannel out = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            for (long written = 0; written < FILE_LENGTH; written += block.length) {
+                out.write(ByteBuffer.wrap(block));
+            }
+        }
+        reader = RangeReader.of(FileChannel.open(file, StandardOpenOption.READ));
+
+        MeterRegistry registry = new SimpleMeterRegistry();
+        Bulkhead disk = new Bulkhead("disk read", 64, Duration.ofSeconds(30));
+        // Admission after one request, so every segment is hot after the first pass
+        SegmentCache segmentCache = new SegmentCache(cache, DataSize.ofMegabytes(128), DataSize.ofMegabytes(1),
+                2, 1, DataSize.ofMegabytes(64), disk, registry);
+        rangeTransfer = new RangeTransfer(segmentCache, disk, new DirectBufferPool(DataSize.ofMegabytes(32), registry));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        reader.close();
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public long transfer(Sink sink) throws IOException {
+        long start = ThreadLocalRandom.current().nextLong(FILE_LENGTH / rangeSize) * rangeSize;
+        rangeTransfer.transfer("bench", reader, FILE_LENGTH, new ByteRange(start, start + rangeSize - 1), sink);
+        return sink.written;
+    }
+}
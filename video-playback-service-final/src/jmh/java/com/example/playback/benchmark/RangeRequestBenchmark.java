@@ -0,0 +1,117 @@
+package com.example.playback.benchmark;
+
+import com.example.playback.service.StreamingService;
+import com.example.playback.storage.StoredObject;
+import com.example.playback.streaming.BandwidthPacer;
+import com.example.playback.streaming.ByteRange;
+import com.example.playback.streaming.ByteRangeParser;
+import com.example.playback.streaming.DirectBufferPool;
+import com.example.playback.streaming.RangeTransfer;
+import com.example.playback.streaming.ReadAheadPrefetcher;
+import com.example.playback.streaming.SegmentCache;
+import com.example.playback.streaming.StreamingMetrics;
+import com.example.playback.streaming.VideoFileMetadata;
+import com.example.playback.util.Bulkhead;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Range header parsing and stream response construction for a large file, across range
+ * sizes and counts. Response construction stops before the body is written: cold ranges
+ * take the sendfile hand-off, leading segments get a cache-backed body. Popularity-based
+ * admission is disabled, since repeating the same range every invocation would otherwise
+ * admit it after a few calls and the cold case would stop measuring sendfile.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RangeRequestBenchmark {
+
+    private static final long FILE_LENGTH = 4L * 1024 * 1024 * 1024;
+
+    @Param({"1024", "1048576", "16777216"})
+    public long rangeSize;
+
+    @Param({"1", "4"})
+    public int rangeCount;
+
+    @Param({"0", "104857600"})
+    public long offset;
+
+    private String header;
+    private VideoFileMetadata metadata;
+    private MockHttpServletRequest request;
+    private StreamingService streamingService;
+    private ReadAheadPrefetcher readAhead;
+
+    @Setup
+    public void setUp() {
+        StringBuilder ranges = new StringBuilder("bytes=");
+        for (int i = 0; i < rangeCount; i++) {
+            long start = offset + i * 2 * rangeSize;
+            ranges.append(i > 0 ? "," : "").append(start).append('-').append(start + rangeSize - 1);
+        }
+        header = ranges.toString();
+
+        metadata = VideoFileMetadata.of("bench",
+                new StoredObject("bench.mp4", FILE_LENGTH, 1_700_000_000_000L, Path.of("/videos/bench.mp4")),
+                MediaType.parseMediaType("video/mp4"));
+        request = new MockHttpServletRequest("GET", "/api/stream/bench");
+        request.setRemoteAddr("10.0.0.1");
+        request.addHeader("User-Agent", "bench");
+        request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+
+        MeterRegistry registry = new SimpleMeterRegistry();
+        Bulkhead disk = new Bulkhead("disk read", 64, Duration.ofSeconds(30));
+        SegmentCache segmentCache = new SegmentCache(true, DataSize.ofMegabytes(256), DataSize.ofMegabytes(1),
+                2, Integer.MAX_VALUE, DataSize.ofMegabytes(64), disk, registry);
+        RangeTransfer rangeTransfer = new RangeTransfer(segmentCache, disk,
+                new DirectBufferPool(DataSize.ofMegabytes(32), registry));
+        BandwidthPacer pacer = new BandwidthPacer(false, 10, 1.5, 5000, Duration.ofMinutes(5), null);
+        // Read-ahead would schedule background reads of a file that does not exist
+        readAhead = new ReadAheadPrefetcher(segmentCache, null, false, Duration.ofSeconds(5), 1, 8, 1,
+                Duration.ofMinutes(2), registry);
+
+        streamingService = new StreamingService(rangeTransfer, segmentCache, null, pacer, null, null,
+                readAhead, new StreamingMetrics(registry), null);
+        ReflectionTestUtils.setField(streamingService, "sendfileEnabled", true);
+        ReflectionTestUtils.setField(streamingService, "openRangeChunkSize", DataSize.ofMegabytes(4));
+        ReflectionTestUtils.setField(streamingService, "maxRanges", 16);
+        ReflectionTestUtils.setField(streamingService, "cacheMaxAge", Duration.ofHours(1));
+    }
+
+    @TearDown
+    public void tearDown() {
+        readAhead.shutdown();
+    }
+
+    @Benchmark
+    public List<ByteRange> parse() {
+        return ByteRangeParser.parse(header, FILE_LENGTH, 4L * 1024 * 1024, 16);
+    }
+
+    @Benchmark
+    public ResponseEntity<StreamingResponseBody> streamVideo() {
+        return streamingService.streamVideo(metadata, header, request);
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.playback.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.LongFunction;
+
+/**
+ * Canned catalog-service answers for the endpoints the playback service calls, so load
+ * tests measure the playback service and not a shared catalog deployment.
+ */
+final class CatalogStub implements AutoCloseable {
+
+    private static final String CATEGORY = "{\"id\":%d,\"name\":\"Category %d\",\"description\":\"Load test category\"}";
+    private static final String CONTENT = "{\"id\":%d,\"title\":\"Title %d\",\"description\":\"Load test content\","
+            + "\"status\":\"PUBLISHED\",\"type\":\"MOVIE\",\"categoryId\":1,\"categoryName\":\"Category 1\","
+            + "\"thumbnailUrl\":\"https://cdn.example.com/%d.jpg\",\"videoUrl\":\"/api/stream/%d\",\"duration\":5400,"
+            + "\"active\":true,\"media\":[],\"createdAt\":\"2025-01-01T00:00:00Z\",\"updatedAt\":\"2025-01-01T00:00:00Z\"}";
+    private static final String CAROUSEL = "{\"id\":%d,\"contentId\":%d,\"title\":\"Featured %d\",\"subtitle\":\"Now streaming\","
+            + "\"type\":\"HERO\",\"order\":%d,\"active\":true,\"contentTitle\":\"Title %d\","
+            + "\"thumbnailUrl\":\"https://cdn.example.com/c%d.jpg\",\"createdAt\":\"2025-01-01T00:00:00Z\","
+            + "\"updatedAt\":\"2025-01-01T00:00:00Z\"}";
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    CatalogStub() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 256);
+        executor = Executors.newFixedThreadPool(8);
+        server.setExecutor(executor);
+        server.createContext("/api/v1/categories", exchange -> {
+            String id = lastSegment(exchange, "categories");
+            respond(exchange, id != null ? category(Long.parseLong(id)) : list(10, CatalogStub::category));
+        });
+        server.createContext("/api/v1/content", exchange -> {
+            String id = lastSegment(exchange, "content");
+            respond(exchange, id != null ? content(Long.parseLong(id))
+                    : "{\"content\":" + list(20, CatalogStub::content) + ",\"totalElements\":20,\"totalPages\":1,"
+                    + "\"number\":0,\"size\":20,\"numberOfElements\":20,\"first\":true,\"last\":true,\"empty\":false}");
+        });
+        server.createContext("/api/v1/carousel", exchange -> {
+            String id = lastSegment(exchange, "carousel");
+            if ("overview".equals(id)) {
+                respond(exchange, "{\"total\":10,\"active\":10}");
+            } else {
+                respond(exchange, id != null ? carousel(Long.parseLong(id)) : list(10, CatalogStub::carousel));
+            }
+        });
+        server.start();
+    }
+
+    String url() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private static String lastSegment(HttpExchange exchange, String collection) {
+        String path = exchange.getRequestURI().getPath();
+        String last = path.substring(path.lastIndexOf('/') + 1);
+        return last.equals(collection) || last.isEmpty() ? null : last;
+    }
+
+    private static String category(long id) {
+        return String.format(CATEGORY, id, id);
+    }
+
+    private static String content(long id) {
+        return String.format(CONTENT, id, id, id, id);
+    }
+
+    private static String carousel(long id) {
+        return String.format(CAROUSEL, id, 100 + id, id, id, 100 + id, id);
+    }
+
+    private static String list(int size, LongFunction<String> item) {
+        StringBuilder json = new StringBuilder("[");
+        for (long id = 1; id <= size; id++) {
+            json.append(id > 1 ? "," : "").append(item.apply(id));
+        }
+        return json.append(']').toString();
+    }
+
+    private static void respond(HttpExchange exchange, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.playback.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-endpoint latency histograms, request, error and byte counts. Nothing is recorded
+ * until {@link #startRecording()}, so ramp-up does not skew the results.
+ */
+final class LoadStats {
+
+    private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(5);
+
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+    private volatile boolean recording;
+
+    static final class Endpoint {
+        final Histogram latency = new ConcurrentHistogram(MAX_LATENCY_MICROS, 3);
+        final LongAdder requests = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LongAdder bytes = new LongAdder();
+        final Map<String, LongAdder> errorsByCause = new ConcurrentHashMap<>();
+    }
+
+    void startRecording() {
+        recording = true;
+    }
+
+    void stopRecording() {
+        recording = false;
+    }
+
+    void success(String endpoint, long nanos, long bytes) {
+        if (recording) {
+            Endpoint stats = endpoint(endpoint);
+            stats.latency.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(nanos), MAX_LATENCY_MICROS));
+            stats.requests.increment();
+            stats.bytes.add(bytes);
+        }
+    }
+
+    /**
+     * A request that failed or got an unexpected status; {@code cause} is the status or the
+     * exception type.
+     */
+    void failure(String endpoint, long nanos, String cause) {
+        if (recording) {
+            Endpoint stats = endpoint(endpoint);
+            stats.latency.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(nanos), MAX_LATENCY_MICROS));
+            stats.requests.increment();
+            stats.errors.increment();
+            stats.errorsByCause.computeIfAbsent(cause, key -> new LongAdder()).increment();
+        }
+    }
+
+    Map<String, Endpoint> snapshot() {
+        return new TreeMap<>(endpoints);
+    }
+
+    private Endpoint endpoint(String name) {
+        return endpoints.computeIfAbsent(name, key -> new Endpoint());
+    }
+}
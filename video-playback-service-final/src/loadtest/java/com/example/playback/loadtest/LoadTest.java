@@ -0,0 +1,303 @@
+package com.example.playback.loadtest;
+
+import com.example.playback.PlaybackServiceApplication;
+import org.HdrHistogram.Histogram;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.FileSystemUtils;
+import tools.jackson.databind.json.JsonMapper;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Capacity test for one playback service instance. Starts the service in this JVM against
+ * the given Postgres database, with a stubbed catalog-service and a generated video, then
+ * runs {@code viewers} virtual viewers (see {@link Viewer}) for {@code duration} after a
+ * ramp-up. Reports per-endpoint latency percentiles, throughput, error rates and database
+ * round trips per viewer-minute, on stdout and as JSON. With {@code --storage=s3} the video
+ * is read from an {@link ObjectStoreStub} through the disk chunk cache instead of a local
+ * directory, and the bytes fetched from the stub are reported too.
+ * <p>
+ * Run with {@code mvn -Ploadtest test -Dloadtest.args="--viewers=200 --duration=5m"}; see
+ * {@link LoadTestOptions} for all options.
+ */
+public final class LoadTest {
+
+    private static final String VIDEO_ID = "loadtest";
+
+    // The service defines no security configuration of its own and is reached through the gateway
+    private static final String SECURITY_AUTO_CONFIGURATION = String.join(",",
+            "org.springframework.boot.security.autoconfigure.SecurityAutoConfiguration",
+            "org.springframework.boot.security.autoconfigure.UserDetailsServiceAutoConfiguration",
+            "org.springframework.boot.security.autoconfigure.web.servlet.ServletWebSecurityAutoConfiguration",
+            "org.springframework.boot.security.autoconfigure.web.servlet.SecurityFilterAutoConfiguration",
+            "org.springframework.boot.security.autoconfigure.actuate.web.servlet.ManagementWebSecurityAutoConfiguration");
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        LongAdder roundTrips = new LongAdder();
+        Path storage = null;
+        Path chunkCache = null;
+        CatalogStub catalog = null;
+        ObjectStoreStub objectStore = null;
+        ConfigurableApplicationContext service = null;
+        try {
+            String baseUrl = options.target();
+            if (baseUrl == null) {
+                storage = Files.createTempDirectory("loadtest-videos");
+                createVideo(storage.resolve(VIDEO_ID + ".mp4"), options.videoSize().toBytes());
+                catalog = new CatalogStub();
+                List<String> storageArgs = new ArrayList<>(List.of("--video.storage.path=" + storage));
+                if (options.storage().equals("s3")) {
+                    objectStore = new ObjectStoreStub(storage);
+                    chunkCache = Files.createTempDirectory("loadtest-chunk-cache");
+                    storageArgs = List.of("--video.storage.type=s3",
+                            "--video.storage.s3.endpoint=" + objectStore.url(),
+                            "--video.storage.s3.bucket=" + ObjectStoreStub.BUCKET,
+                            "--video.storage.cache.path=" + chunkCache);
+                }
+                service = startService(options, storageArgs, catalog.url(), roundTrips);
+                baseUrl = "http://127.0.0.1:" + service.getEnvironment().getProperty("local.server.port");
+            }
+            run(options, baseUrl, service != null ? roundTrips : null, objectStore);
+        } finally {
+            if (service != null) {
+                service.close();
+            }
+            if (catalog != null) {
+                catalog.close();
+            }
+            if (objectStore != null) {
+                objectStore.close();
+            }
+            if (storage != null) {
+                Files.deleteIfExists(storage.resolve(VIDEO_ID + ".mp4"));
+                Files.deleteIfExists(storage);
+            }
+            if (chunkCache != null) {
+                FileSystemUtils.deleteRecursively(chunkCache);
+            }
+        }
+    }
+
+    private static void run(LoadTestOptions options, String baseUrl, LongAdder roundTrips,
+                            ObjectStoreStub objectStore) throws Exception {
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        long videoLength = videoLength(client, baseUrl);
+        LoadStats stats = new LoadStats();
+        JsonMapper jsonMapper = JsonMapper.builder().build();
+
+        long rampUp = options.rampUp().toNanos();
+        long measureFrom = System.nanoTime() + rampUp;
+        long deadline = measureFrom + options.duration().toNanos();
+        ExecutorService viewers = Executors.newFixedThreadPool(options.viewers(),
+                new CustomizableThreadFactory("viewer-"));
+        for (int i = 0; i < options.viewers(); i++) {
+            Viewer viewer = new Viewer(i, options, baseUrl, VIDEO_ID, videoLength, deadline, client, jsonMapper, stats);
+            long startAt = measureFrom - rampUp + rampUp * i / options.viewers();
+            viewers.execute(() -> {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(startAt - System.nanoTime());
+                    viewer.run();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        System.out.printf(Locale.ROOT, "Ramping up %d viewers against %s over %ds%n",
+                options.viewers(), baseUrl, options.rampUp().toSeconds());
+
+        TimeUnit.NANOSECONDS.sleep(measureFrom - System.nanoTime());
+        long roundTripsBefore = roundTrips != null ? roundTrips.sum() : 0;
+        long objectStoreBytesBefore = objectStore != null ? objectStore.bytes() : 0;
+        stats.startRecording();
+        System.out.printf(Locale.ROOT, "Measuring for %ds%n", options.duration().toSeconds());
+        TimeUnit.NANOSECONDS.sleep(deadline - System.nanoTime());
+        stats.stopRecording();
+        Long dbRoundTrips = roundTrips != null ? roundTrips.sum() - roundTripsBefore : null;
+        Long objectStoreBytes = objectStore != null ? objectStore.bytes() - objectStoreBytesBefore : null;
+
+        viewers.shutdownNow();
+        viewers.awaitTermination(30, TimeUnit.SECONDS);
+
+        Map<String, Object> report = report(options, stats, dbRoundTrips, objectStoreBytes);
+        print(report);
+        Files.createDirectories(options.report().toAbsolutePath().getParent());
+        jsonMapper.writerWithDefaultPrettyPrinter().writeValue(options.report().toFile(), report);
+        System.out.println("Report written to " + options.report().toAbsolutePath());
+    }
+
+    private static ConfigurableApplicationContext startService(LoadTestOptions options, List<String> storageArgs,
+                                                               String catalogUrl, LongAdder roundTrips) {
+        BeanPostProcessor countRoundTrips = new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof DataSource dataSource && !(bean instanceof RoundTripCountingDataSource)
+                        ? new RoundTripCountingDataSource(dataSource, roundTrips)
+                        : bean;
+            }
+        };
+        // Command line arguments, so they take precedence over application.properties
+        List<String> args = new ArrayList<>(List.of("--server.port=0",
+                "--spring.datasource.url=" + options.jdbcUrl(),
+                "--spring.datasource.username=" + options.jdbcUser(),
+                "--spring.datasource.password=" + options.jdbcPassword(),
+                "--spring.jpa.show-sql=false",
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=WARN",
+                "--catalog.service.url=" + catalogUrl,
+                "--spring.autoconfigure.exclude=" + SECURITY_AUTO_CONFIGURATION));
+        args.addAll(storageArgs);
+        return new SpringApplicationBuilder(PlaybackServiceApplication.class)
+                .initializers(context -> context.getBeanFactory().addBeanPostProcessor(countRoundTrips))
+                .run(args.toArray(String[]::new));
+    }
+
+    private static void createVideo(Path path, long size) throws IOException {
+        byte[] block = new byte[1024 * 1024];
+        ThreadLocalRandom.current().nextBytes(block);
+        try (FileChannel out = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            for (long written = 0; written < size; ) {
+                ByteBuffer buffer = ByteBuffer.wrap(block, 0, (int) Math.min(block.length, size - written));
+                written += out.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * The video's length from the Content-Range of a one byte request, which also checks the
+     * service serves it before any viewer starts.
+     */
+    private static long videoLength(HttpClient client, String baseUrl) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/stream/" + VIDEO_ID))
+                .header("Range", "bytes=0-0")
+                .build();
+        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+        String contentRange = response.headers().firstValue("Content-Range").orElse(null);
+        if (response.statusCode() != 206 || contentRange == null) {
+            throw new IllegalStateException("Video " + VIDEO_ID + " is not served by " + baseUrl
+                    + " (status " + response.statusCode() + ")");
+        }
+        return Long.parseLong(contentRange.substring(contentRange.lastIndexOf('/') + 1));
+    }
+
+    private static Map<String, Object> report(LoadTestOptions options, LoadStats stats, Long dbRoundTrips,
+                                              Long objectStoreBytes) {
+        double seconds = options.duration().toNanos() / 1e9;
+        double viewerMinutes = options.viewers() * seconds / 60;
+
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        long requests = 0;
+        long errors = 0;
+        long streamBytes = 0;
+        for (Map.Entry<String, LoadStats.Endpoint> entry : stats.snapshot().entrySet()) {
+            LoadStats.Endpoint endpoint = entry.getValue();
+            Histogram latency = endpoint.latency;
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("requests", endpoint.requests.sum());
+            row.put("requestsPerSecond", round(endpoint.requests.sum() / seconds));
+            row.put("errors", endpoint.errors.sum());
+            row.put("errorRate", endpoint.requests.sum() == 0 ? 0.0
+                    : round((double) endpoint.errors.sum() / endpoint.requests.sum()));
+            Map<String, Object> millis = new LinkedHashMap<>();
+            millis.put("p50", millis(latency.getValueAtPercentile(50)));
+            millis.put("p90", millis(latency.getValueAtPercentile(90)));
+            millis.put("p99", millis(latency.getValueAtPercentile(99)));
+            millis.put("p99.9", millis(latency.getValueAtPercentile(99.9)));
+            millis.put("max", millis(latency.getMaxValue()));
+            millis.put("mean", round(latency.getMean() / 1000));
+            row.put("latencyMillis", millis);
+            Map<String, Long> causes = new LinkedHashMap<>();
+            endpoint.errorsByCause.forEach((cause, count) -> causes.put(cause, count.sum()));
+            row.put("errorsByCause", causes);
+            endpoints.put(entry.getKey(), row);
+
+            if (!entry.getKey().equals("stream.ttfb")) {
+                requests += endpoint.requests.sum();
+                errors += endpoint.errors.sum();
+            }
+            if (entry.getKey().equals("stream")) {
+                streamBytes = endpoint.bytes.sum();
+            }
+        }
+
+        Map<String, Object> run = new LinkedHashMap<>();
+        run.put("viewers", options.viewers());
+        run.put("storage", options.target() == null ? options.storage() : null);
+        run.put("durationSeconds", round(seconds));
+        run.put("bitrateKbps", options.bitrateKbps());
+        run.put("chunkSizeBytes", options.chunkSize().toBytes());
+        run.put("viewerMinutes", round(viewerMinutes));
+
+        Map<String, Object> totals = new LinkedHashMap<>();
+        totals.put("requests", requests);
+        totals.put("requestsPerSecond", round(requests / seconds));
+        totals.put("errorRate", requests == 0 ? 0.0 : round((double) errors / requests));
+        totals.put("streamMegabytesPerSecond", round(streamBytes / seconds / (1024 * 1024)));
+        totals.put("dbRoundTrips", dbRoundTrips);
+        totals.put("dbRoundTripsPerViewerMinute", dbRoundTrips != null ? round(dbRoundTrips / viewerMinutes) : null);
+        // Bytes fetched from the object store; what the chunk cache did not absorb
+        totals.put("objectStoreMegabytesPerSecond",
+                objectStoreBytes != null ? round(objectStoreBytes / seconds / (1024 * 1024)) : null);
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("run", run);
+        report.put("totals", totals);
+        report.put("endpoints", endpoints);
+        return report;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void print(Map<String, Object> report) {
+        System.out.println();
+        System.out.printf(Locale.ROOT, "%-12s %9s %8s %7s %9s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "req/s", "errors", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        ((Map<String, Object>) report.get("endpoints")).forEach((name, value) -> {
+            Map<String, Object> row = (Map<String, Object>) value;
+            Map<String, Object> millis = (Map<String, Object>) row.get("latencyMillis");
+            System.out.printf(Locale.ROOT, "%-12s %9d %8.1f %6.2f%% %9.1f %9.1f %9.1f %9.1f %9.1f%n",
+                    name, row.get("requests"), row.get("requestsPerSecond"), 100 * (double) row.get("errorRate"),
+                    millis.get("p50"), millis.get("p90"), millis.get("p99"), millis.get("p99.9"), millis.get("max"));
+        });
+        System.out.println();
+        ((Map<String, Object>) report.get("totals")).forEach((name, value) ->
+                System.out.printf(Locale.ROOT, "%-30s %s%n", name, value != null ? value : "n/a"));
+    }
+
+    private static double millis(long micros) {
+        return round(micros / 1000.0);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+}
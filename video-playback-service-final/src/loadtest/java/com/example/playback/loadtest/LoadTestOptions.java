@@ -0,0 +1,89 @@
+package com.example.playback.loadtest;
+
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Load test settings, given as {@code --name=value} arguments; everything has a default.
+ *
+ * @param viewers           concurrent virtual viewers
+ * @param duration          measured run time, after ramp-up
+ * @param rampUp            time over which viewers are started; not measured
+ * @param minWatch          shortest viewing before a viewer stops and starts another one
+ * @param maxWatch          longest viewing
+ * @param bitrateKbps       media bitrate; sets how fast a viewer consumes what it downloaded
+ * @param bufferAhead       media a player buffers before pacing its range requests
+ * @param chunkSize         size of each sequential range request
+ * @param heartbeatInterval time between heartbeats of a playback session
+ * @param progressInterval  time between progress updates
+ * @param videoSize         size of the generated video file
+ * @param jdbcUrl           database the service is started against
+ * @param jdbcUser          database user
+ * @param jdbcPassword      database password
+ * @param storage           {@code local} serves the video from a directory, {@code s3} from an
+ *                          in-process object store stub through the disk chunk cache
+ * @param target            base URL of an already running service that serves a {@code loadtest}
+ *                          video; when set, nothing is started and DB round trips are not reported
+ * @param report            JSON report location
+ */
+public record LoadTestOptions(int viewers, Duration duration, Duration rampUp, Duration minWatch, Duration maxWatch,
+                              int bitrateKbps, Duration bufferAhead, DataSize chunkSize,
+                              Duration heartbeatInterval, Duration progressInterval, DataSize videoSize,
+                              String jdbcUrl, String jdbcUser, String jdbcPassword, String storage, String target,
+                              Path report) {
+
+    private static final Set<String> KNOWN = Set.of("viewers", "duration", "ramp-up", "min-watch", "max-watch",
+            "bitrate-kbps", "buffer-ahead", "chunk-size", "heartbeat-interval", "progress-interval", "video-size",
+            "jdbc-url", "jdbc-user", "jdbc-password", "storage", "target", "report");
+
+    public static LoadTestOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals < 0) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            values.put(arg.substring(2, equals), arg.substring(equals + 1));
+        }
+        LoadTestOptions options = new LoadTestOptions(
+                Integer.parseInt(values.getOrDefault("viewers", "50")),
+                duration(values.getOrDefault("duration", "2m")),
+                duration(values.getOrDefault("ramp-up", "30s")),
+                duration(values.getOrDefault("min-watch", "30s")),
+                duration(values.getOrDefault("max-watch", "2m")),
+                Integer.parseInt(values.getOrDefault("bitrate-kbps", "5000")),
+                duration(values.getOrDefault("buffer-ahead", "30s")),
+                DataSize.parse(values.getOrDefault("chunk-size", "2MB")),
+                duration(values.getOrDefault("heartbeat-interval", "10s")),
+                duration(values.getOrDefault("progress-interval", "10s")),
+                DataSize.parse(values.getOrDefault("video-size", "256MB")),
+                values.getOrDefault("jdbc-url", "jdbc:postgresql://localhost:5432/video_streaming"),
+                values.getOrDefault("jdbc-user", "postgres"),
+                values.getOrDefault("jdbc-password", "root"),
+                values.getOrDefault("storage", "local"),
+                values.get("target"),
+                Path.of(values.getOrDefault("report", "target/loadtest-report.json")));
+        if (!options.storage().equals("local") && !options.storage().equals("s3")) {
+            throw new IllegalArgumentException("--storage must be local or s3, got " + options.storage());
+        }
+        values.keySet().removeAll(KNOWN);
+        if (!values.isEmpty()) {
+            throw new IllegalArgumentException("Unknown options: " + values.keySet());
+        }
+        return options;
+    }
+
+    public long bytesPerSecond() {
+        return bitrateKbps * 1000L / 8;
+    }
+
+    private static Duration duration(String value) {
+        return DurationStyle.detectAndParse(value);
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.playback.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The part of the S3 API the playback service uses (anonymous HEAD and ranged GET of
+ * path-style URLs), served from a local directory, so load tests can run the remote
+ * storage tier and its disk cache without an object store deployment.
+ */
+final class ObjectStoreStub implements AutoCloseable {
+
+    static final String BUCKET = "videos";
+
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d+)-(\\d+)");
+    private static final DateTimeFormatter HTTP_DATE =
+            DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US).withZone(ZoneOffset.UTC);
+
+    private final Path directory;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final LongAdder bytes = new LongAdder();
+
+    ObjectStoreStub(Path directory) throws IOException {
+        this.directory = directory;
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 256);
+        executor = Executors.newFixedThreadPool(16);
+        server.setExecutor(executor);
+        server.createContext("/" + BUCKET + "/", exchange -> {
+            try {
+                handle(exchange);
+            } finally {
+                exchange.close();
+            }
+        });
+        server.start();
+    }
+
+    String url() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    long bytes() {
+        return bytes.sum();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String key = exchange.getRequestURI().getPath().substring(BUCKET.length() + 2);
+        Path file = directory.resolve(key).normalize();
+        if (!file.startsWith(directory) || !Files.isRegularFile(file)) {
+            exchange.sendResponseHeaders(404, -1);
+            return;
+        }
+        long length = Files.size(file);
+        long lastModified = Files.getLastModifiedTime(file).toMillis();
+        exchange.getResponseHeaders().set("Last-Modified", HTTP_DATE.format(Instant.ofEpochMilli(lastModified)));
+        exchange.getResponseHeaders().set("Accept-Ranges", "bytes");
+
+        if (exchange.getRequestMethod().equals("HEAD")) {
+            exchange.getResponseHeaders().set("Content-Length", Long.toString(length));
+            exchange.sendResponseHeaders(200, -1);
+            return;
+        }
+        String unmodifiedSince = exchange.getRequestHeaders().getFirst("If-Unmodified-Since");
+        if (unmodifiedSince != null && lastModified / 1000
+                > ZonedDateTime.parse(unmodifiedSince, DateTimeFormatter.RFC_1123_DATE_TIME).toEpochSecond()) {
+            exchange.sendResponseHeaders(412, -1);
+            return;
+        }
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        Matcher matcher = RANGE.matcher(range != null ? range : "");
+        boolean ranged = matcher.matches();
+        long start = ranged ? Long.parseLong(matcher.group(1)) : 0;
+        long end = ranged ? Math.min(Long.parseLong(matcher.group(2)), length - 1) : length - 1;
+        if (start >= length) {
+            exchange.sendResponseHeaders(416, -1);
+            return;
+        }
+        if (ranged) {
+            exchange.getResponseHeaders().set("Content-Range", "bytes " + start + "-" + end + "/" + length);
+        }
+        long count = end - start + 1;
+        exchange.sendResponseHeaders(ranged ? 206 : 200, count);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+             OutputStream body = exchange.getResponseBody()) {
+            WritableByteChannel target = Channels.newChannel(body);
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            for (long position = start; position <= end; ) {
+                buffer.clear().limit((int) Math.min(buffer.capacity(), end - position + 1));
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    break;
+                }
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    target.write(buffer);
+                }
+                position += read;
+            }
+        }
+        bytes.add(count);
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.playback.loadtest;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the service's database round trips: statement executions (a JDBC batch counts
+ * once, as the driver sends it together), commits and rollbacks.
+ */
+final class RoundTripCountingDataSource extends DelegatingDataSource {
+
+    private static final Set<String> ROUND_TRIPS = Set.of("execute", "executeQuery", "executeUpdate",
+            "executeLargeUpdate", "executeBatch", "executeLargeBatch", "commit", "rollback");
+
+    private final LongAdder roundTrips;
+
+    RoundTripCountingDataSource(DataSource target, LongAdder roundTrips) {
+        super(target);
+        this.roundTrips = roundTrips;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(Connection.class, super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(Connection.class, super.getConnection(username, password));
+    }
+
+    private <T> T wrap(Class<T> type, T target) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            if (ROUND_TRIPS.contains(method.getName())) {
+                roundTrips.increment();
+            }
+            Object result = invoke(target, method, args);
+            return result instanceof Statement statement ? wrapStatement(method, statement) : result;
+        };
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    private Object wrapStatement(Method method, Statement statement) {
+        if (method.getReturnType() == CallableStatement.class) {
+            return wrap(CallableStatement.class, (CallableStatement) statement);
+        }
+        if (method.getReturnType() == PreparedStatement.class) {
+            return wrap(PreparedStatement.class, (PreparedStatement) statement);
+        }
+        return method.getReturnType() == Statement.class ? wrap(Statement.class, statement) : statement;
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
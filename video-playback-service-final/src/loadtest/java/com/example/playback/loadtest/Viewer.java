@@ -0,0 +1,197 @@
+package com.example.playback.loadtest;
+
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One virtual viewer. Each viewing opens the home screen, starts a playback session and
+ * downloads the video as sequential ranges: at full speed until {@code buffer-ahead} of
+ * media is buffered, then at the media bitrate. Heartbeats and progress updates are sent
+ * on their intervals; the session is stopped after a random watch time, and the next
+ * viewing starts at once.
+ */
+final class Viewer implements Runnable {
+
+    private final int id;
+    private final LoadTestOptions options;
+    private final String baseUrl;
+    private final String videoId;
+    private final long videoLength;
+    private final long deadlineNanos;
+    private final HttpClient client;
+    private final JsonMapper jsonMapper;
+    private final LoadStats stats;
+
+    Viewer(int id, LoadTestOptions options, String baseUrl, String videoId, long videoLength, long deadlineNanos,
+           HttpClient client, JsonMapper jsonMapper, LoadStats stats) {
+        this.id = id;
+        this.options = options;
+        this.baseUrl = baseUrl;
+        this.videoId = videoId;
+        this.videoLength = videoLength;
+        this.deadlineNanos = deadlineNanos;
+        this.client = client;
+        this.jsonMapper = jsonMapper;
+        this.stats = stats;
+    }
+
+    @Override
+    public void run() {
+        String userId = "loadtest-" + id;
+        while (System.nanoTime() < deadlineNanos && !Thread.currentThread().isInterrupted()) {
+            try {
+                watch(userId);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException | RuntimeException e) {
+                // Already recorded against the endpoint; back off briefly before the next viewing
+                sleepQuietly(1000);
+            }
+        }
+    }
+
+    private void watch(String userId) throws IOException, InterruptedException {
+        send("home", get("/api/home/" + userId));
+        HttpResponse<byte[]> started = send("start", post("/api/playback/start",
+                "{\"userId\":\"" + userId + "\",\"videoId\":\"" + videoId + "\"}"));
+        if (started == null) {
+            throw new IOException("Playback session was not started");
+        }
+        JsonNode session = jsonMapper.readTree(started.body());
+        String sessionId = session.get("sessionId").asString();
+
+        long bytesPerSecond = options.bytesPerSecond();
+        long chunk = options.chunkSize().toBytes();
+        long watchNanos = ThreadLocalRandom.current().nextLong(options.minWatch().toNanos(),
+                options.maxWatch().toNanos() + 1);
+        long playStart = System.nanoTime();
+        long end = Math.min(playStart + watchNanos, deadlineNanos);
+        long nextHeartbeat = playStart + options.heartbeatInterval().toNanos();
+        long nextProgress = playStart + options.progressInterval().toNanos();
+        double mediaSeconds = (double) videoLength / bytesPerSecond;
+        long offset = 0;
+
+        while (System.nanoTime() < end) {
+            long now = System.nanoTime();
+            double playedSeconds = (now - playStart) / 1e9;
+            if (playedSeconds >= mediaSeconds) {
+                break;
+            }
+            double bufferedSeconds = (double) offset / bytesPerSecond - playedSeconds;
+            if (offset < videoLength && bufferedSeconds < options.bufferAhead().toSeconds()) {
+                long last = Math.min(offset + chunk, videoLength) - 1;
+                offset += stream(sessionId, offset, last);
+                continue;
+            }
+            if (now >= nextHeartbeat) {
+                send("heartbeat", post("/api/playback/heartbeat/" + sessionId, ""));
+                nextHeartbeat += options.heartbeatInterval().toNanos();
+            }
+            if (now >= nextProgress) {
+                progress(userId, playedSeconds);
+                nextProgress += options.progressInterval().toNanos();
+            }
+            long wake = Math.min(end, Math.min(nextHeartbeat, nextProgress));
+            if (offset < videoLength) {
+                // Wake early enough to top the buffer up again
+                wake = Math.min(wake, playStart + (long) ((offset / (double) bytesPerSecond
+                        - options.bufferAhead().toSeconds() + 1) * 1e9));
+            }
+            TimeUnit.NANOSECONDS.sleep(Math.max(wake - System.nanoTime(), 1_000_000));
+        }
+        progress(userId, (System.nanoTime() - playStart) / 1e9);
+        send("stop", post("/api/playback/stop/" + sessionId, ""));
+    }
+
+    /**
+     * Fetches one range as part of the playback session, as a player would, so pacing and
+     * read-ahead see one stream per viewer; time to first byte and full transfer are recorded
+     * separately.
+     */
+    private long stream(String sessionId, long first, long last) throws IOException, InterruptedException {
+        HttpRequest request = get("/api/stream/" + videoId)
+                .header("Range", "bytes=" + first + "-" + last)
+                .header("X-Playback-Session", sessionId)
+                .build();
+        long started = System.nanoTime();
+        HttpResponse<InputStream> response;
+        try {
+            response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        } catch (IOException e) {
+            stats.failure("stream", System.nanoTime() - started, e.getClass().getSimpleName());
+            throw e;
+        }
+        long headers = System.nanoTime();
+        long read;
+        try (InputStream body = response.body()) {
+            read = body.transferTo(OutputStream.nullOutputStream());
+        } catch (IOException e) {
+            stats.failure("stream", System.nanoTime() - started, e.getClass().getSimpleName());
+            throw e;
+        }
+        long finished = System.nanoTime();
+        if (response.statusCode() != 206) {
+            stats.failure("stream", finished - started, String.valueOf(response.statusCode()));
+            throw new IOException("Range request answered with " + response.statusCode());
+        }
+        stats.success("stream.ttfb", headers - started, 0);
+        stats.success("stream", finished - started, read);
+        return read;
+    }
+
+    private void progress(String userId, double playedSeconds) throws IOException, InterruptedException {
+        long total = Math.max(1, videoLength / options.bytesPerSecond());
+        send("progress", post("/api/progress/update", "{\"userId\":\"" + userId + "\",\"videoId\":\"" + videoId
+                + "\",\"watchedSeconds\":" + (long) playedSeconds + ",\"totalSeconds\":" + total + "}"));
+    }
+
+    /**
+     * Sends a request and records it; returns {@code null} for non-2xx answers.
+     */
+    private HttpResponse<byte[]> send(String endpoint, HttpRequest.Builder request)
+            throws IOException, InterruptedException {
+        long started = System.nanoTime();
+        HttpResponse<byte[]> response;
+        try {
+            response = client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+        } catch (IOException e) {
+            stats.failure(endpoint, System.nanoTime() - started, e.getClass().getSimpleName());
+            throw e;
+        }
+        long elapsed = System.nanoTime() - started;
+        if (response.statusCode() / 100 != 2) {
+            stats.failure(endpoint, elapsed, String.valueOf(response.statusCode()));
+            return null;
+        }
+        stats.success(endpoint, elapsed, response.body().length);
+        return response;
+    }
+
+    private HttpRequest.Builder get(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).GET();
+    }
+
+    private HttpRequest.Builder post(String path, String json) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json));
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -2,105 +2,467 @@ package com.example.playback.client;
 
 import com.example.playback.dto.catalog.CarouselResponse;
 import com.example.playback.dto.catalog.CategoryResponse;
+import com.example.playback.dto.catalog.ContentPageResponse;
 import com.example.playback.dto.catalog.ContentResponse;
+import com.example.playback.exception.ServiceBusyException;
+import com.example.playback.util.Bulkhead;
+import com.example.playback.util.CircuitBreaker;
+import com.example.playback.util.LatencyTracker;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestClient;
+import org.springframework.web.util.UriBuilder;
 
+import java.net.URI;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
+/**
+ * HTTP client for catalog-service. All calls are idempotent GETs and share the same
+ * protections: the catalog bulkhead, a hedged second attempt when the first one is slower
+ * than recent p95 latency, a circuit breaker, and a last-known-good response per request
+ * that is served when catalog-service fails or the breaker is open.
+ */
 @Component
 public class CatalogServiceClient {
 
+    private static final Logger log = LoggerFactory.getLogger(CatalogServiceClient.class);
+
+    private static final long HEDGE_TOKEN = 1000;
+    private static final int MIN_LATENCY_SAMPLES = 20;
+    private static final List<String> METHODS = List.of("getAllCategories", "getCategoryById", "getContentById",
+            "getPublishedContent", "getPublishedContentJson", "getAllCarouselItems", "getCarouselById",
+            "getCarouselOverview");
+
+    private enum Outcome {
+        SUCCESS, FALLBACK, CLIENT_ERROR, ERROR;
+
+        private final String tag = name().toLowerCase(Locale.ROOT);
+    }
+
     private final RestClient restClient;
+    private final Bulkhead bulkhead;
+    private final CircuitBreaker circuitBreaker;
+    private final LatencyTracker latencyTracker;
+    private final ScheduledThreadPoolExecutor hedgeTimer;
+    private final ThreadPoolExecutor hedgeExecutor;
+    private final Cache<String, Object> lastKnownGood;
+    private final AtomicLong hedgeTokens = new AtomicLong();
+    private final Counter hedges;
+    private final Counter fallbacks;
+    private final Map<String, Map<Outcome, Timer>> requestTimers = new HashMap<>();
+
+    @Value("${catalog.service.hedge.enabled:true}")
+    private boolean hedgeEnabled;
+
+    @Value("${catalog.service.hedge.min-delay:20ms}")
+    private Duration hedgeMinDelay;
+
+    @Value("${catalog.service.hedge.max-delay:500ms}")
+    private Duration hedgeMaxDelay;
+
+    // Fraction of calls that may be hedged, so hedging cannot double load during an outage
+    @Value("${catalog.service.hedge.budget:0.1}")
+    private double hedgeBudget;
 
     public CatalogServiceClient(
             @Value("${catalog.service.url:http://catalog-service:8081}") String catalogServiceUrl,
-            RestClient.Builder restClientBuilder) {
+            @Value("${catalog.service.last-known-good.max-entries:10000}") long lastKnownGoodEntries,
+            @Value("${catalog.service.hedge.max-concurrent:8}") int maxConcurrentHedges,
+            RestClient.Builder restClientBuilder,
+            @Qualifier("catalogRequestFactory") ClientHttpRequestFactory requestFactory,
+            @Qualifier("catalogBulkhead") Bulkhead bulkhead,
+            @Qualifier("catalogCircuitBreaker") CircuitBreaker circuitBreaker,
+            @Qualifier("catalogLatencyTracker") LatencyTracker latencyTracker,
+            MeterRegistry meterRegistry) {
         this.restClient = restClientBuilder
                 .baseUrl(catalogServiceUrl)
+                .requestFactory(requestFactory)
                 .build();
+        this.bulkhead = bulkhead;
+        this.circuitBreaker = circuitBreaker;
+        this.latencyTracker = latencyTracker;
+        // The first attempt runs on the caller's thread; only hedges need threads of their own.
+        // A hedge that finds all of them busy is not sent
+        CustomizableThreadFactory timerFactory = new CustomizableThreadFactory("catalog-hedge-timer-");
+        timerFactory.setDaemon(true);
+        this.hedgeTimer = new ScheduledThreadPoolExecutor(1, timerFactory);
+        this.hedgeTimer.setRemoveOnCancelPolicy(true);
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("catalog-hedge-");
+        threadFactory.setDaemon(true);
+        this.hedgeExecutor = new ThreadPoolExecutor(maxConcurrentHedges, maxConcurrentHedges, 30, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+        this.hedgeExecutor.allowCoreThreadTimeOut(true);
+        this.lastKnownGood = Caffeine.newBuilder().maximumSize(lastKnownGoodEntries).build();
+        this.hedges = Counter.builder("catalog.client.hedges").register(meterRegistry);
+        this.fallbacks = Counter.builder("catalog.client.fallbacks").register(meterRegistry);
+        for (String method : METHODS) {
+            Map<Outcome, Timer> timers = new EnumMap<>(Outcome.class);
+            for (Outcome outcome : Outcome.values()) {
+                timers.put(outcome, Timer.builder("catalog.client.requests")
+                        .tag("method", method)
+                        .tag("outcome", outcome.tag)
+                        .publishPercentileHistogram()
+                        .register(meterRegistry));
+            }
+            requestTimers.put(method, timers);
+        }
     }
 
     /**
      * Get all categories from catalog service
      */
     public List<CategoryResponse> getAllCategories() {
-        return restClient.get()
-                .uri("/api/v1/categories")
-                .retrieve()
-                .body(new ParameterizedTypeReference<List<CategoryResponse>>() {});
+        return fetch("getAllCategories", "categories", () -> restClient.get()
+                    .uri("/api/v1/categories")
+                    .retrieve()
+                    .body(new ParameterizedTypeReference<List<CategoryResponse>>() {}));
     }
 
     /**
      * Get category by ID
      */
     public CategoryResponse getCategoryById(Long id) {
-        return restClient.get()
-                .uri("/api/v1/categories/{id}", id)
-                .retrieve()
-                .body(CategoryResponse.class);
+        return fetch("getCategoryById", "categories/" + id, () -> restClient.get()
+                    .uri("/api/v1/categories/{id}", id)
+                    .retrieve()
+                    .body(CategoryResponse.class));
     }
 
     /**
      * Get content by ID
      */
     public ContentResponse getContentById(Long id) {
-        return restClient.get()
-                .uri("/api/v1/content/{id}", id)
-                .retrieve()
-                .body(ContentResponse.class);
+        return fetch("getContentById", "content/" + id, () -> restClient.get()
+                    .uri("/api/v1/content/{id}", id)
+                    .retrieve()
+                    .body(ContentResponse.class));
+    }
+
+    /**
+     * Get all published content with optional filters, bound straight to the typed page
+     */
+    public ContentPageResponse getPublishedContent(String type, Long categoryId, String search,
+                                                   int page, int size, String sortBy, String sortDir) {
+        return fetch("getPublishedContent", contentPageKey(type, categoryId, search, page, size, sortBy, sortDir),
+                () -> restClient.get()
+                        .uri(contentPageUri(type, categoryId, search, page, size, sortBy, sortDir))
+                        .retrieve()
+                        .body(ContentPageResponse.class));
     }
 
     /**
-     * Get all published content with optional filters
+     * Same page as {@link #getPublishedContent}, as the unparsed JSON body from catalog-service
      */
-    public Map<String, Object> getPublishedContent(String type, Long categoryId, String search,
-                                                    int page, int size, String sortBy, String sortDir) {
-        return restClient.get()
-                .uri(uriBuilder -> uriBuilder
-                        .path("/api/v1/content")
-                        .queryParamIfPresent("type", java.util.Optional.ofNullable(type))
-                        .queryParamIfPresent("categoryId", java.util.Optional.ofNullable(categoryId))
-                        .queryParamIfPresent("search", java.util.Optional.ofNullable(search))
-                        .queryParam("page", page)
-                        .queryParam("size", size)
-                        .queryParam("sortBy", sortBy)
-                        .queryParam("sortDir", sortDir)
-                        .build())
-                .retrieve()
-                .body(new ParameterizedTypeReference<Map<String, Object>>() {});
+    public byte[] getPublishedContentJson(String type, Long categoryId, String search,
+                                          int page, int size, String sortBy, String sortDir) {
+        return fetch("getPublishedContentJson",
+                "json:" + contentPageKey(type, categoryId, search, page, size, sortBy, sortDir),
+                () -> restClient.get()
+                        .uri(contentPageUri(type, categoryId, search, page, size, sortBy, sortDir))
+                        .accept(MediaType.APPLICATION_JSON)
+                        .retrieve()
+                        .body(byte[].class));
+    }
+
+    private static String contentPageKey(String type, Long categoryId, String search,
+                                         int page, int size, String sortBy, String sortDir) {
+        return "content?type=" + type + "&categoryId=" + categoryId + "&search=" + search
+                + "&page=" + page + "&size=" + size + "&sortBy=" + sortBy + "&sortDir=" + sortDir;
+    }
+
+    private static Function<UriBuilder, URI> contentPageUri(String type, Long categoryId, String search,
+                                                            int page, int size, String sortBy, String sortDir) {
+        return uriBuilder -> uriBuilder
+                .path("/api/v1/content")
+                .queryParamIfPresent("type", Optional.ofNullable(type))
+                .queryParamIfPresent("categoryId", Optional.ofNullable(categoryId))
+                .queryParamIfPresent("search", Optional.ofNullable(search))
+                .queryParam("page", page)
+                .queryParam("size", size)
+                .queryParam("sortBy", sortBy)
+                .queryParam("sortDir", sortDir)
+                .build();
     }
 
     /**
      * Get all carousel items (featured content)
      */
     public List<CarouselResponse> getAllCarouselItems() {
-        return restClient.get()
-                .uri("/api/v1/carousel")
-                .retrieve()
-                .body(new ParameterizedTypeReference<List<CarouselResponse>>() {});
+        return fetch("getAllCarouselItems", "carousel", () -> restClient.get()
+                    .uri("/api/v1/carousel")
+                    .retrieve()
+                    .body(new ParameterizedTypeReference<List<CarouselResponse>>() {}));
     }
 
     /**
      * Get carousel item by ID
      */
     public CarouselResponse getCarouselById(Long id) {
-        return restClient.get()
-                .uri("/api/v1/carousel/{id}", id)
-                .retrieve()
-                .body(CarouselResponse.class);
+        return fetch("getCarouselById", "carousel/" + id, () -> restClient.get()
+                    .uri("/api/v1/carousel/{id}", id)
+                    .retrieve()
+                    .body(CarouselResponse.class));
     }
 
     /**
      * Get carousel overview/statistics
      */
     public Map<String, Object> getCarouselOverview() {
-        return restClient.get()
-                .uri("/api/v1/carousel/overview")
-                .retrieve()
-                .body(new ParameterizedTypeReference<Map<String, Object>>() {});
+        return fetch("getCarouselOverview", "carousel/overview", () -> restClient.get()
+                    .uri("/api/v1/carousel/overview")
+                    .retrieve()
+                    .body(new ParameterizedTypeReference<Map<String, Object>>() {}));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        hedgeTimer.shutdownNow();
+        hedgeExecutor.shutdownNow();
+    }
+
+    /**
+     * Runs a call with all protections and records its latency, including hedging and
+     * fallbacks, as {@code catalog.client.requests} by client method and outcome.
+     */
+    private <T> T fetch(String method, String key, Supplier<T> request) {
+        long started = System.nanoTime();
+        Outcome outcome = Outcome.ERROR;
+        try {
+            if (!circuitBreaker.tryAcquire()) {
+                T value = fallback(key, new ServiceBusyException("catalog-service is unavailable, try again later"));
+                outcome = Outcome.FALLBACK;
+                return value;
+            }
+            try {
+                T result = hedged(request);
+                circuitBreaker.onSuccess();
+                if (result != null) {
+                    lastKnownGood.put(key, result);
+                }
+                outcome = Outcome.SUCCESS;
+                return result;
+            } catch (HttpServerErrorException | ResourceAccessException e) {
+                circuitBreaker.onFailure();
+                T value = fallback(key, e);
+                outcome = Outcome.FALLBACK;
+                return value;
+            } catch (HttpClientErrorException e) {
+                // A 4xx answer means catalog-service is up and working
+                circuitBreaker.onSuccess();
+                outcome = Outcome.CLIENT_ERROR;
+                throw e;
+            } catch (RuntimeException e) {
+                circuitBreaker.onIgnored();
+                throw e;
+            }
+        } finally {
+            requestTimers.get(method).get(outcome).record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T fallback(String key, RuntimeException failure) {
+        Object value = lastKnownGood.getIfPresent(key);
+        if (value == null) {
+            throw failure;
+        }
+        fallbacks.increment();
+        log.debug("Serving last known good catalog response for {}: {}", key, failure.getMessage());
+        return (T) value;
+    }
+
+    /**
+     * Runs the request on the calling thread and, if it has not answered within the hedge
+     * delay, starts a second identical request on the hedge pool. The first successful
+     * response wins: a hedge that wins interrupts the caller's attempt, a caller that wins
+     * cancels the hedge. When one attempt fails the other one is still waited for.
+     */
+    private <T> T hedged(Supplier<T> request) {
+        Callable<T> attempt = () -> {
+            long started = System.nanoTime();
+            T result = bulkhead.call(request::get);
+            latencyTracker.record(System.nanoTime() - started);
+            return result;
+        };
+        if (!hedgeEnabled) {
+            return call(attempt);
+        }
+        hedgeTokens.accumulateAndGet((long) (hedgeBudget * HEDGE_TOKEN),
+                (tokens, earned) -> Math.min(tokens + earned, 10 * HEDGE_TOKEN));
+
+        Hedge<T> hedge = new Hedge<>(attempt, Thread.currentThread());
+        hedge.timer = hedgeTimer.schedule(hedge::start, hedgeDelayNanos(), TimeUnit.NANOSECONDS);
+        T result = null;
+        Exception failure = null;
+        try {
+            result = attempt.call();
+        } catch (Exception e) {
+            failure = e;
+        }
+        return hedge.finish(result, failure);
+    }
+
+    /**
+     * The hedged second attempt of one call and the handshake with the caller's own attempt.
+     * State changes happen under the monitor, so the caller is only ever interrupted while
+     * its attempt is still running, and clears that interrupt before returning.
+     */
+    private final class Hedge<T> {
+
+        private final Callable<T> attempt;
+        private final Thread caller;
+        private ScheduledFuture<?> timer;
+        private Future<?> running;
+        private boolean callerDone;
+        private boolean started;
+        private boolean finished;
+        private boolean won;
+        private T value;
+        private Exception failure;
+
+        private Hedge(Callable<T> attempt, Thread caller) {
+            this.attempt = attempt;
+            this.caller = caller;
+        }
+
+        private synchronized void start() {
+            if (callerDone || !mayHedge()) {
+                return;
+            }
+            try {
+                running = hedgeExecutor.submit(this::run);
+                started = true;
+                hedges.increment();
+            } catch (RejectedExecutionException e) {
+                // All hedge threads are busy, so catalog-service is slow for everyone; do not add load
+            }
+        }
+
+        private void run() {
+            T result = null;
+            Exception error = null;
+            try {
+                result = attempt.call();
+            } catch (Exception e) {
+                error = e;
+            }
+            synchronized (this) {
+                finished = true;
+                value = result;
+                failure = error;
+                if (error == null && !callerDone) {
+                    won = true;
+                    caller.interrupt();
+                }
+                notifyAll();
+            }
+        }
+
+        /**
+         * Called by the caller once its own attempt has returned or failed.
+         */
+        private T finish(T result, Exception callerFailure) {
+            boolean waitForHedge;
+            synchronized (this) {
+                if (won) {
+                    // The interrupt was delivered under this monitor, so it is already pending or consumed
+                    Thread.interrupted();
+                    return value;
+                }
+                callerDone = true;
+                waitForHedge = started && callerFailure != null;
+            }
+            timer.cancel(false);
+            if (callerFailure == null) {
+                if (running != null) {
+                    running.cancel(true);
+                }
+                return result;
+            }
+            if (!waitForHedge) {
+                throw rethrow(callerFailure);
+            }
+            try {
+                synchronized (this) {
+                    while (!finished) {
+                        wait();
+                    }
+                    if (failure == null) {
+                        return value;
+                    }
+                }
+                throw rethrow(callerFailure);
+            } catch (InterruptedException e) {
+                running.cancel(true);
+                Thread.currentThread().interrupt();
+                throw new ServiceBusyException("Interrupted while waiting for catalog-service");
+            }
+        }
+    }
+
+    private long hedgeDelayNanos() {
+        long p95 = latencyTracker.getSampleCount() >= MIN_LATENCY_SAMPLES ? latencyTracker.percentile(0.95) : -1;
+        if (p95 < 0) {
+            return hedgeMaxDelay.toNanos();
+        }
+        return Math.max(hedgeMinDelay.toNanos(), Math.min(hedgeMaxDelay.toNanos(), p95));
+    }
+
+    private boolean mayHedge() {
+        if (bulkhead.getInUse() >= bulkhead.getMaxConcurrent()) {
+            return false;
+        }
+        return hedgeTokens.getAndUpdate(tokens -> tokens >= HEDGE_TOKEN ? tokens - HEDGE_TOKEN : tokens) >= HEDGE_TOKEN;
+    }
+
+    private static <T> T call(Callable<T> attempt) {
+        try {
+            return attempt.call();
+        } catch (Exception e) {
+            throw rethrow(e);
+        }
+    }
+
+    private static RuntimeException rethrow(Throwable failure) {
+        if (failure instanceof RuntimeException runtimeException) {
+            return runtimeException;
+        }
+        if (failure instanceof Error error) {
+            throw error;
+        }
+        return new IllegalStateException(failure);
     }
 }
@@ -0,0 +1,63 @@
+
+package com.example.playback.config;
+
+import com.example.playback.util.CircuitBreaker;
+import com.example.playback.util.LatencyTracker;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+/**
+ * Transport and resilience settings for calls to catalog-service.
+ */
+@Configuration
+public class CatalogClientConfig {
+
+    /**
+     * JDK client: keeps HTTP/1.1 connections alive and reuses them across calls
+     * (pool limits via {@code jdk.httpclient.connectionPoolSize} / {@code keepalive.timeout}).
+     */
+    @Bean
+    public ClientHttpRequestFactory catalogRequestFactory(
+            @Value("${catalog.service.connect-timeout:1s}") Duration connectTimeout,
+            @Value("${catalog.service.read-timeout:3s}") Duration readTimeout) {
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(connectTimeout)
+                .build();
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(readTimeout);
+        return requestFactory;
+    }
+
+    @Bean
+    public CircuitBreaker catalogCircuitBreaker(
+            @Value("${catalog.service.breaker.window-size:20}") int windowSize,
+            @Value("${catalog.service.breaker.minimum-calls:10}") int minimumCalls,
+            @Value("${catalog.service.breaker.failure-rate-threshold:0.5}") double failureRateThreshold,
+            @Value("${catalog.service.breaker.open-duration:10s}") Duration openDuration,
+            MeterRegistry meterRegistry) {
+        CircuitBreaker breaker = new CircuitBreaker("catalog-service", windowSize, minimumCalls,
+                failureRateThreshold, openDuration.toNanos());
+        Gauge.builder("catalog.client.breaker.open", breaker,
+                        b -> b.getState() == CircuitBreaker.State.CLOSED ? 0 : 1)
+                .register(meterRegistry);
+        return breaker;
+    }
+
+    @Bean
+    public LatencyTracker catalogLatencyTracker(MeterRegistry meterRegistry) {
+        LatencyTracker tracker = new LatencyTracker(1024);
+        Gauge.builder("catalog.client.latency.p95", tracker, t -> t.percentile(0.95) / 1_000_000.0)
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        return tracker;
+    }
+}
@@ -0,0 +1,53 @@
+
+package com.example.playback.config;
+
+import com.example.playback.util.Bulkhead;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Concurrency limits for blocking I/O. With {@code spring.threads.virtual.enabled=true}
+ * every request runs on its own virtual thread, so these bulkheads are what keeps
+ * disk reads and catalog-service calls bounded.
+ */
+@Configuration
+public class ConcurrencyConfig {
+
+    @Bean
+    public Bulkhead diskBulkhead(
+            @Value("${video.io.max-concurrent-reads:64}") int maxConcurrent,
+            @Value("${video.io.max-wait:30s}") Duration maxWait,
+            MeterRegistry meterRegistry) {
+        return register(new Bulkhead("disk read", maxConcurrent, maxWait), "disk", meterRegistry);
+    }
+
+    @Bean
+    public Bulkhead catalogBulkhead(
+            @Value("${catalog.service.max-concurrent-calls:50}") int maxConcurrent,
+            @Value("${catalog.service.max-wait:2s}") Duration maxWait,
+            MeterRegistry meterRegistry) {
+        return register(new Bulkhead("catalog-service", maxConcurrent, maxWait), "catalog", meterRegistry);
+    }
+
+    // Each export keeps a database connection open while it streams, so only a few may run
+    @Bean
+    public Bulkhead exportBulkhead(
+            @Value("${video.export.max-concurrent:2}") int maxConcurrent,
+            @Value("${video.export.max-wait:0s}") Duration maxWait,
+            MeterRegistry meterRegistry) {
+        return register(new Bulkhead("video export", maxConcurrent, maxWait), "export", meterRegistry);
+    }
+
+    private Bulkhead register(Bulkhead bulkhead, String tag, MeterRegistry meterRegistry) {
+        Gauge.builder("playback.bulkhead.in.use", bulkhead, Bulkhead::getInUse)
+                .tag("bulkhead", tag).register(meterRegistry);
+        Gauge.builder("playback.bulkhead.max", bulkhead, Bulkhead::getMaxConcurrent)
+                .tag("bulkhead", tag).register(meterRegistry);
+        return bulkhead;
+    }
+}
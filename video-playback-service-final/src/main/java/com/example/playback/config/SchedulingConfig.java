@@ -0,0 +1,13 @@
+
+package com.example.playback.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables {@code @Scheduled} background work such as the playback session flush.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -0,0 +1,91 @@
+
+package com.example.playback.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Schema changes that {@code ddl-auto=update} cannot make safely on existing data. Runs once
+ * at startup after Hibernate has created the tables; every step is idempotent. Statements
+ * are PostgreSQL-specific. Startup fails if the unique progress index cannot be ensured,
+ * since progress upserts depend on it; the listing indexes only speed up reads, so each of
+ * those failing is logged and skipped.
+ */
+@Component
+public class SchemaGuard {
+
+    private static final Logger log = LoggerFactory.getLogger(SchemaGuard.class);
+
+    private static final String PROGRESS_UNIQUE_INDEX = "uk_watch_progress_user_video";
+    private static final String PROGRESS_HISTORY_INDEX = "idx_watch_progress_user_recent";
+    private static final String PROGRESS_IN_PROGRESS_INDEX = "idx_watch_progress_user_in_progress";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // The EntityManagerFactory parameter only orders this bean after Hibernate's schema update
+    public SchemaGuard(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void apply() {
+        try {
+            ensureProgressUniqueIndex();
+        } catch (DataAccessException e) {
+            throw new IllegalStateException("Could not ensure unique index " + PROGRESS_UNIQUE_INDEX
+                    + " that watch progress upserts rely on: " + e.getMessage(), e);
+        }
+        ensureProgressListingIndex(PROGRESS_HISTORY_INDEX, "");
+        ensureProgressListingIndex(PROGRESS_IN_PROGRESS_INDEX, " WHERE completed = false");
+    }
+
+    /**
+     * Progress upserts need a unique (user_id, video_id) index. Rows duplicated by the old
+     * read-modify-write path are collapsed to the most recently updated one first.
+     */
+    private void ensureProgressUniqueIndex() {
+        if (indexExists(PROGRESS_UNIQUE_INDEX)) {
+            return;
+        }
+        int removed = jdbcTemplate.update("""
+                DELETE FROM watch_progress a USING watch_progress b
+                WHERE a.user_id = b.user_id AND a.video_id = b.video_id
+                  AND (COALESCE(a.updated_at, '-infinity') < COALESCE(b.updated_at, '-infinity')
+                       OR (a.updated_at IS NOT DISTINCT FROM b.updated_at AND a.id < b.id))
+                """);
+        if (removed > 0) {
+            log.info("Removed {} duplicate watch_progress rows", removed);
+        }
+        jdbcTemplate.execute("CREATE UNIQUE INDEX IF NOT EXISTS " + PROGRESS_UNIQUE_INDEX
+                + " ON watch_progress (user_id, video_id)");
+        log.info("Created unique index {}", PROGRESS_UNIQUE_INDEX);
+    }
+
+    /**
+     * Covering indexes for the keyset-paginated progress listings, so a page is an index-only
+     * range scan however many rows the user has. In-progress rows get their own partial index
+     * so users with long completed histories do not scan past them.
+     */
+    private void ensureProgressListingIndex(String name, String predicate) {
+        try {
+            if (!indexExists(name)) {
+                jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS " + name
+                        + " ON watch_progress (user_id, updated_at DESC, id DESC)"
+                        + " INCLUDE (video_id, watched_seconds, total_seconds, completed)" + predicate);
+                log.info("Created index {}", name);
+            }
+        } catch (DataAccessException e) {
+            log.warn("Could not create index {}, progress listings will be slower: {}", name, e.getMessage());
+        }
+    }
+
+    private boolean indexExists(String name) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT to_regclass(?) IS NOT NULL", Boolean.class, name));
+    }
+}
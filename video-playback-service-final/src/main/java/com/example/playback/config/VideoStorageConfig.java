@@ -0,0 +1,60 @@
+package com.example.playback.config;
+
+import com.example.playback.storage.DiskChunkCache;
+import com.example.playback.storage.LocalVideoStorage;
+import com.example.playback.storage.S3VideoStorage;
+import com.example.playback.storage.VideoStorage;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.Assert;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Selects the video storage backend with {@code video.storage.type}: {@code local} serves
+ * {@code video.storage.path}, {@code s3} an S3-compatible bucket through a local disk
+ * chunk cache.
+ */
+@Configuration
+public class VideoStorageConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "video.storage.type", havingValue = "local", matchIfMissing = true)
+    public VideoStorage localVideoStorage(@Value("${video.storage.path:videos}") String path) {
+        return new LocalVideoStorage(path);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "video.storage.type", havingValue = "s3")
+    public VideoStorage s3VideoStorage(
+            @Value("${video.storage.s3.endpoint:https://s3.us-east-1.amazonaws.com}") URI endpoint,
+            @Value("${video.storage.s3.region:us-east-1}") String region,
+            @Value("${video.storage.s3.bucket:}") String bucket,
+            @Value("${video.storage.s3.prefix:}") String prefix,
+            @Value("${video.storage.s3.path-style:true}") boolean pathStyle,
+            @Value("${video.storage.s3.access-key:}") String accessKey,
+            @Value("${video.storage.s3.secret-key:}") String secretKey,
+            @Value("${video.storage.s3.connect-timeout:2s}") Duration connectTimeout,
+            @Value("${video.storage.s3.request-timeout:10s}") Duration requestTimeout,
+            @Value("${video.storage.cache.enabled:true}") boolean cacheEnabled,
+            @Value("${video.storage.cache.path:chunk-cache}") Path cachePath,
+            @Value("${video.storage.cache.max-size:10GB}") DataSize cacheMaxSize,
+            @Value("${video.storage.cache.chunk-size:8MB}") DataSize chunkSize,
+            MeterRegistry meterRegistry) throws IOException {
+        Assert.hasText(bucket, "video.storage.s3.bucket must be set when video.storage.type=s3");
+        S3VideoStorage remote = new S3VideoStorage(endpoint, region, bucket, prefix, pathStyle, accessKey, secretKey,
+                connectTimeout, requestTimeout, meterRegistry);
+        if (!cacheEnabled || cacheMaxSize.toBytes() <= 0) {
+            return remote;
+        }
+        return new DiskChunkCache(remote, cachePath, cacheMaxSize.toBytes(),
+                (int) Math.min(chunkSize.toBytes(), Integer.MAX_VALUE), meterRegistry);
+    }
+}
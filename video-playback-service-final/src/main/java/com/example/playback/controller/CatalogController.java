@@ -1,9 +1,12 @@
 package com.example.playback.controller;
 
-import com.example.playback.client.CatalogServiceClient;
 import com.example.playback.dto.catalog.CarouselResponse;
 import com.example.playback.dto.catalog.CategoryResponse;
+import com.example.playback.dto.catalog.ContentBatchResponse;
 import com.example.playback.dto.catalog.ContentResponse;
+import com.example.playback.service.CatalogService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -14,10 +17,14 @@ import java.util.Map;
 @RequestMapping("/api/catalog")
 public class CatalogController {
 
-    private final CatalogServiceClient catalogServiceClient;
+    private final CatalogService catalogService;
+    private final boolean contentPassThrough;
 
-    public CatalogController(CatalogServiceClient catalogServiceClient) {
-        this.catalogServiceClient = catalogServiceClient;
+    public CatalogController(
+            CatalogService catalogService,
+            @Value("${catalog.content.pass-through:true}") boolean contentPassThrough) {
+        this.catalogService = catalogService;
+        this.contentPassThrough = contentPassThrough;
     }
 
     /**
@@ -25,7 +32,7 @@ public class CatalogController {
      */
     @GetMapping("/categories")
     public ResponseEntity<List<CategoryResponse>> getAllCategories() {
-        return ResponseEntity.ok(catalogServiceClient.getAllCategories());
+        return ResponseEntity.ok(catalogService.getAllCategories());
     }
 
     /**
@@ -33,7 +40,7 @@ public class CatalogController {
      */
     @GetMapping("/categories/{id}")
     public ResponseEntity<CategoryResponse> getCategoryById(@PathVariable Long id) {
-        return ResponseEntity.ok(catalogServiceClient.getCategoryById(id));
+        return ResponseEntity.ok(catalogService.getCategoryById(id));
     }
 
     /**
@@ -41,14 +48,24 @@ public class CatalogController {
      */
     @GetMapping("/content/{id}")
     public ResponseEntity<ContentResponse> getContentById(@PathVariable Long id) {
-        return ResponseEntity.ok(catalogServiceClient.getContentById(id));
+        return ResponseEntity.ok(catalogService.getContentById(id));
     }
 
     /**
-     * Get published content with filtering and pagination
+     * Get several content items in one call, e.g. {@code ?ids=1,2,3}. Items that could not be
+     * loaded are listed under {@code errors} with their own status.
+     */
+    @GetMapping("/content/batch")
+    public ResponseEntity<ContentBatchResponse> getContentBatch(@RequestParam List<Long> ids) {
+        return ResponseEntity.ok(catalogService.getContentBatch(ids));
+    }
+
+    /**
+     * Get published content with filtering and pagination. In pass-through mode the page is
+     * returned exactly as catalog-service sent it, without being parsed.
      */
     @GetMapping("/content")
-    public ResponseEntity<Map<String, Object>> getPublishedContent(
+    public ResponseEntity<?> getPublishedContent(
             @RequestParam(required = false) String type,
             @RequestParam(required = false) Long categoryId,
             @RequestParam(required = false) String search,
@@ -56,7 +73,12 @@ public class CatalogController {
             @RequestParam(defaultValue = "20") int size,
             @RequestParam(defaultValue = "createdAt") String sortBy,
             @RequestParam(defaultValue = "DESC") String sortDir) {
-        return ResponseEntity.ok(catalogServiceClient.getPublishedContent(
+        if (contentPassThrough) {
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(catalogService.getPublishedContentJson(type, categoryId, search, page, size, sortBy, sortDir));
+        }
+        return ResponseEntity.ok(catalogService.getPublishedContent(
                 type, categoryId, search, page, size, sortBy, sortDir));
     }
 
@@ -65,7 +87,7 @@ public class CatalogController {
      */
     @GetMapping("/carousel")
     public ResponseEntity<List<CarouselResponse>> getAllCarouselItems() {
-        return ResponseEntity.ok(catalogServiceClient.getAllCarouselItems());
+        return ResponseEntity.ok(catalogService.getAllCarouselItems());
     }
 
     /**
@@ -73,7 +95,7 @@ public class CatalogController {
      */
     @GetMapping("/carousel/{id}")
     public ResponseEntity<CarouselResponse> getCarouselById(@PathVariable Long id) {
-        return ResponseEntity.ok(catalogServiceClient.getCarouselById(id));
+        return ResponseEntity.ok(catalogService.getCarouselById(id));
     }
 
     /**
@@ -81,6 +103,6 @@ public class CatalogController {
      */
     @GetMapping("/carousel/overview")
     public ResponseEntity<Map<String, Object>> getCarouselOverview() {
-        return ResponseEntity.ok(catalogServiceClient.getCarouselOverview());
+        return ResponseEntity.ok(catalogService.getCarouselOverview());
     }
 }
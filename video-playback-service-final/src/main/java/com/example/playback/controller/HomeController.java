@@ -0,0 +1,25 @@
+package com.example.playback.controller;
+
+import com.example.playback.dto.HomeResponse;
+import com.example.playback.service.HomeService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/home")
+public class HomeController {
+
+    private final HomeService homeService;
+
+    public HomeController(HomeService homeService) {
+        this.homeService = homeService;
+    }
+
+    /**
+     * Carousel, categories, carousel overview and the user's in-progress videos in one call
+     */
+    @GetMapping("/{userId}")
+    public ResponseEntity<HomeResponse> getHome(@PathVariable String userId) {
+        return ResponseEntity.ok(homeService.getHome(userId));
+    }
+}
@@ -0,0 +1,41 @@
+
+package com.example.playback.controller;
+
+import com.example.playback.service.ManifestService;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/stream")
+public class ManifestController {
+
+    private static final MediaType HLS_PLAYLIST = MediaType.valueOf("application/vnd.apple.mpegurl");
+    private static final MediaType DASH_MANIFEST = MediaType.valueOf("application/dash+xml");
+
+    private final ManifestService manifestService;
+
+    public ManifestController(ManifestService manifestService) {
+        this.manifestService = manifestService;
+    }
+
+    /**
+     * HLS media playlist whose segments are byte ranges of the MP4 file
+     */
+    @GetMapping("/{videoId}/playlist.m3u8")
+    public ResponseEntity<String> hls(@PathVariable String videoId) {
+        return ResponseEntity.ok()
+                .contentType(HLS_PLAYLIST)
+                .body(manifestService.hlsPlaylist(videoId));
+    }
+
+    /**
+     * DASH manifest whose segments are byte ranges of the MP4 file
+     */
+    @GetMapping("/{videoId}/manifest.mpd")
+    public ResponseEntity<String> dash(@PathVariable String videoId) {
+        return ResponseEntity.ok()
+                .contentType(DASH_MANIFEST)
+                .body(manifestService.dashManifest(videoId));
+    }
+}
@@ -7,6 +7,8 @@ import com.example.playback.service.PlaybackService;
 import jakarta.validation.Valid;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Map;
+
 @RestController
 @RequestMapping("/api/playback")
 public class PlaybackController {
@@ -31,4 +33,14 @@ public class PlaybackController {
     public void stop(@PathVariable String sessionId) {
         playbackService.stop(sessionId);
     }
+
+    @GetMapping("/active/users/{userId}")
+    public Map<String, Object> activeForUser(@PathVariable String userId) {
+        return Map.of("userId", userId, "activeStreams", playbackService.activeStreamsForUser(userId));
+    }
+
+    @GetMapping("/active/videos/{videoId}")
+    public Map<String, Object> activeForVideo(@PathVariable String videoId) {
+        return Map.of("videoId", videoId, "activeStreams", playbackService.activeStreamsForVideo(videoId));
+    }
 }
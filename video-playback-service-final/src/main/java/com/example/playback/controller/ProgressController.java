@@ -1,6 +1,7 @@
 
 package com.example.playback.controller;
 
+import com.example.playback.dto.ProgressPageResponse;
 import com.example.playback.dto.ProgressRequest;
 import com.example.playback.service.ProgressService;
 import jakarta.validation.Valid;
@@ -20,4 +21,26 @@ public class ProgressController {
     public void update(@Valid @RequestBody ProgressRequest request) {
         progressService.updateProgress(request);
     }
+
+    /**
+     * Unfinished videos, most recent first; pass the returned nextCursor to get the next page
+     */
+    @GetMapping("/{userId}/continue-watching")
+    public ProgressPageResponse continueWatching(
+            @PathVariable String userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        return progressService.getContinueWatching(userId, cursor, size);
+    }
+
+    /**
+     * All watched videos, most recent first; pass the returned nextCursor to get the next page
+     */
+    @GetMapping("/{userId}/history")
+    public ProgressPageResponse history(
+            @PathVariable String userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        return progressService.getHistory(userId, cursor, size);
+    }
 }
@@ -1,15 +1,25 @@
 
 package com.example.playback.controller;
 
+import com.example.playback.media.SeekIndex;
 import com.example.playback.service.StreamingService;
-import org.springframework.core.io.Resource;
+import com.example.playback.streaming.VideoFileMetadata;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.Locale;
 
 @RestController
 @RequestMapping("/api/stream")
 public class StreamingController {
 
+    private static final String SEEK_TIME_HEADER = "X-Seek-Time";
+
     private final StreamingService streamingService;
 
     public StreamingController(StreamingService streamingService) {
@@ -17,10 +27,34 @@ public class StreamingController {
     }
 
     @GetMapping("/{videoId}")
-    public ResponseEntity<Resource> stream(
+    public ResponseEntity<StreamingResponseBody> stream(
             @PathVariable String videoId,
-            @RequestHeader(value = "Range", required = false) String range
+            @RequestHeader(value = "Range", required = false) String range,
+            @RequestHeader(value = HttpHeaders.IF_RANGE, required = false) String ifRange,
+            @RequestParam(value = "t", required = false) Double t,
+            @RequestParam(value = "quality", required = false) String quality,
+            WebRequest webRequest,
+            HttpServletRequest request,
+            HttpServletResponse response
     ) {
-        return streamingService.streamVideo(videoId, range);
+        VideoFileMetadata metadata = streamingService.getMetadata(videoId, quality);
+
+        // Answers If-None-Match / If-Modified-Since with 304 and adds ETag and Last-Modified
+        if (webRequest.checkNotModified(metadata.etag(), metadata.lastModified())) {
+            return null;
+        }
+
+        // A stale If-Range validator means the client's partial copy is outdated: send the whole file
+        if (range != null && ifRange != null && !metadata.matchesIfRange(ifRange)) {
+            range = null;
+        }
+
+        // ?t= seeks to the keyframe at or before t; an explicit Range header takes precedence
+        if (t != null && range == null) {
+            SeekIndex.Keyframe keyframe = streamingService.seek(metadata, t);
+            range = "bytes=" + keyframe.offset() + "-";
+            response.setHeader(SEEK_TIME_HEADER, String.format(Locale.ROOT, "%.3f", keyframe.seconds()));
+        }
+        return streamingService.streamVideo(metadata, range, request);
     }
 }
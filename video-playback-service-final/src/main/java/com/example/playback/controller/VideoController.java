@@ -1,24 +1,74 @@
-
 package com.example.playback.controller;
 
-import com.example.playback.entity.Video;
 import com.example.playback.service.VideoService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/videos")
 public class VideoController {
 
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final int DEFAULT_PAGE_SIZE = 50;
+
     private final VideoService videoService;
 
     public VideoController(VideoService videoService) {
         this.videoService = videoService;
     }
 
+    /**
+     * Videos ordered by id, optionally filtered and limited to some fields
+     * ({@code ?fields=id,title}). Without {@code size} or {@code cursor} the whole library is
+     * returned, as it always was; with either, one page is returned and, when there are more,
+     * the cursor for the next page comes back in the X-Next-Cursor header.
+     */
     @GetMapping
-    public List<Video> getAll() {
-        return videoService.getAllVideos();
+    public ResponseEntity<List<Map<String, Object>>> list(
+            @RequestParam(required = false) String quality,
+            @RequestParam(required = false) String mimeType,
+            @RequestParam(required = false) List<String> fields,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        VideoService.VideoFilter filter = new VideoService.VideoFilter(quality, mimeType, fields);
+        if (cursor == null && size == null) {
+            return ResponseEntity.ok(videoService.listAllVideos(filter));
+        }
+        VideoService.VideoPage page = videoService.listVideos(filter, cursor,
+                size != null ? size : DEFAULT_PAGE_SIZE);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+        return response.body(page.items());
+    }
+
+    /**
+     * Forget the cached file resolution of a video, e.g. after its row was updated
+     */
+    @DeleteMapping("/{videoId}/cache")
+    public ResponseEntity<Void> invalidate(@PathVariable String videoId) {
+        videoService.invalidate(videoId);
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * The whole library as newline-delimited JSON, one video per line
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestParam(required = false) String quality,
+            @RequestParam(required = false) String mimeType,
+            @RequestParam(required = false) List<String> fields,
+            HttpServletRequest request) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(videoService.exportVideos(new VideoService.VideoFilter(quality, mimeType, fields), request));
     }
 }
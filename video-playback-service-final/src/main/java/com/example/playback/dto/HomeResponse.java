@@ -0,0 +1,35 @@
+package com.example.playback.dto;
+
+import com.example.playback.dto.catalog.CarouselResponse;
+import com.example.playback.dto.catalog.CategoryResponse;
+import com.example.playback.dto.catalog.ContentResponse;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Everything the home screen needs in one payload. A section that could not be loaded is
+ * null and its reason is listed in {@code errors}.
+ */
+@Data
+public class HomeResponse {
+    private String userId;
+    private List<CarouselResponse> carousel;
+    private List<CategoryResponse> categories;
+    private Map<String, Object> carouselOverview;
+    private List<ContinueWatchingItem> continueWatching;
+    private Map<String, String> errors = new LinkedHashMap<>();
+
+    @Data
+    public static class ContinueWatchingItem {
+        private String videoId;
+        private Long watchedSeconds;
+        private Long totalSeconds;
+        private LocalDateTime updatedAt;
+        // Null when the video has no catalog entry or it could not be loaded in time
+        private ContentResponse content;
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.playback.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * One page of a user's watch progress. Pass {@code nextCursor} back as {@code cursor} to get
+ * the next page; it is null on the last page.
+ */
+@Data
+public class ProgressPageResponse {
+    private List<Item> items;
+    private String nextCursor;
+
+    @Data
+    public static class Item {
+        private String videoId;
+        private Long watchedSeconds;
+        private Long totalSeconds;
+        private boolean completed;
+        private LocalDateTime updatedAt;
+    }
+}
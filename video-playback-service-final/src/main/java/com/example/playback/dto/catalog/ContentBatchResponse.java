@@ -0,0 +1,24 @@
+package com.example.playback.dto.catalog;
+
+import lombok.Data;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Data
+public class ContentBatchResponse {
+    private List<ContentResponse> items = new ArrayList<>();
+    private Map<Long, ItemError> errors = new LinkedHashMap<>();
+
+    @Data
+    public static class ItemError {
+        private int status;
+        private String message;
+
+        public ItemError(int status, String message) {
+            this.status = status;
+            this.message = message;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.playback.dto.catalog;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+import java.util.List;
+
+/**
+ * One page of published content as returned by catalog-service. Fields the upstream page
+ * does not send are left out of the response rather than written as null.
+ */
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ContentPageResponse {
+    private List<ContentResponse> content;
+    private Pageable pageable;
+    private Long totalElements;
+    private Integer totalPages;
+    private Integer number;
+    private Integer size;
+    private Integer numberOfElements;
+    private Boolean first;
+    private Boolean last;
+    private Boolean empty;
+
+    @Data
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Pageable {
+        private Integer pageNumber;
+        private Integer pageSize;
+        private Long offset;
+    }
+}
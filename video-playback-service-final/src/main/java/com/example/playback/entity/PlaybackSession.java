@@ -7,7 +7,10 @@ import lombok.Data;
 import java.time.LocalDateTime;
 @Data
 @Entity
-@Table(name = "playback_sessions")
+@Table(name = "playback_sessions", indexes = {
+        @Index(name = "idx_playback_sessions_session_id", columnList = "sessionId"),
+        @Index(name = "idx_playback_sessions_active_heartbeat", columnList = "active, lastHeartbeat")
+})
 public class PlaybackSession {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -6,7 +6,11 @@ import lombok.Data;
 
 @Data
 @Entity
-@Table(name = "videos")
+@Table(name = "videos", indexes = {
+        @Index(name = "idx_videos_quality_id", columnList = "quality, id"),
+        @Index(name = "idx_videos_mime_type_id", columnList = "mimeType, id"),
+        @Index(name = "idx_videos_title_id_quality", columnList = "titleId, quality")
+})
 public class Video {
     @Id
     private String id;
@@ -15,4 +19,6 @@ public class Video {
     private String mimeType;
     private Long duration;
     private String quality;
+    // Quality variants of one title share this id; null for a title's own row
+    private String titleId;
 }
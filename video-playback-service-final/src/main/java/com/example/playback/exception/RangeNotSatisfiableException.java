@@ -0,0 +1,16 @@
+
+package com.example.playback.exception;
+
+public class RangeNotSatisfiableException extends RuntimeException {
+
+    private final long resourceLength;
+
+    public RangeNotSatisfiableException(long resourceLength) {
+        super("Requested range not satisfiable");
+        this.resourceLength = resourceLength;
+    }
+
+    public long getResourceLength() {
+        return resourceLength;
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.playback.exception;
+
+/**
+ * Video storage failed to answer. Reported as 503 when retrying soon may help and 502
+ * otherwise, never as a client error.
+ */
+public class StorageUnavailableException extends RuntimeException {
+
+    private final boolean retryable;
+
+    public StorageUnavailableException(String message, boolean retryable, Throwable cause) {
+        super(message, cause);
+        this.retryable = retryable;
+    }
+
+    public boolean isRetryable() {
+        return retryable;
+    }
+}
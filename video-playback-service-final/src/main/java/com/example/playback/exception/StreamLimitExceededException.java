@@ -0,0 +1,8 @@
+
+package com.example.playback.exception;
+
+public class StreamLimitExceededException extends RuntimeException {
+    public StreamLimitExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,79 @@
+
+package com.example.playback.media;
+
+import java.util.Locale;
+
+/**
+ * Renders a {@link SegmentPlan} as an HLS media playlist or a DASH MPD. Both point at the
+ * progressive file itself; segments are addressed by byte range only.
+ */
+public final class ManifestRenderer {
+
+    private ManifestRenderer() {
+    }
+
+    public static String hls(SegmentPlan plan, String mediaUri) {
+        StringBuilder playlist = new StringBuilder(64 * (plan.segments().size() + 8));
+        playlist.append("#EXTM3U\n")
+                .append("#EXT-X-VERSION:7\n")
+                .append("#EXT-X-TARGETDURATION:").append((long) Math.ceil(plan.maxSegmentSeconds())).append('\n')
+                .append("#EXT-X-MEDIA-SEQUENCE:0\n")
+                .append("#EXT-X-PLAYLIST-TYPE:VOD\n")
+                .append("#EXT-X-INDEPENDENT-SEGMENTS\n")
+                .append("#EXT-X-MAP:URI=\"").append(mediaUri).append("\",BYTERANGE=\"")
+                .append(plan.initLength()).append("@0\"\n");
+
+        for (SegmentPlan.Segment segment : plan.segments()) {
+            playlist.append("#EXTINF:")
+                    .append(String.format(Locale.ROOT, "%.3f", segment.durationSeconds(plan.timescale())))
+                    .append(",\n")
+                    .append("#EXT-X-BYTERANGE:").append(segment.length()).append('@').append(segment.offset()).append('\n')
+                    .append(mediaUri).append('\n');
+        }
+        return playlist.append("#EXT-X-ENDLIST\n").toString();
+    }
+
+    public static String dash(SegmentPlan plan, String mediaUri, String representationId) {
+        StringBuilder mpd = new StringBuilder(64 * (plan.segments().size() + 16));
+        mpd.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+                .append("<MPD xmlns=\"urn:mpeg:dash:schema:mpd:2011\" type=\"static\"")
+                .append(" profiles=\"urn:mpeg:dash:profile:isoff-main:2011\"")
+                .append(" minBufferTime=\"PT2S\"")
+                .append(" mediaPresentationDuration=\"")
+                .append(String.format(Locale.ROOT, "PT%.3fS", plan.durationSeconds())).append("\">\n")
+                .append("  <Period>\n")
+                .append("    <AdaptationSet mimeType=\"video/mp4\" segmentAlignment=\"true\" startWithSAP=\"1\">\n")
+                .append("      <Representation id=\"").append(xml(representationId)).append('"')
+                .append(" bandwidth=\"").append(plan.bandwidth()).append('"');
+        if (!plan.codecs().isEmpty()) {
+            mpd.append(" codecs=\"").append(xml(plan.codecs())).append('"');
+        }
+        if (plan.width() > 0 && plan.height() > 0) {
+            mpd.append(" width=\"").append(plan.width()).append("\" height=\"").append(plan.height()).append('"');
+        }
+        mpd.append(">\n")
+                .append("        <BaseURL>").append(xml(mediaUri)).append("</BaseURL>\n")
+                .append("        <SegmentList timescale=\"").append(plan.timescale()).append("\">\n")
+                .append("          <Initialization range=\"0-").append(plan.initLength() - 1).append("\"/>\n")
+                .append("          <SegmentTimeline>\n");
+        for (SegmentPlan.Segment segment : plan.segments()) {
+            mpd.append("            <S t=\"").append(segment.start()).append("\" d=\"").append(segment.duration())
+                    .append("\"/>\n");
+        }
+        mpd.append("          </SegmentTimeline>\n");
+        for (SegmentPlan.Segment segment : plan.segments()) {
+            mpd.append("          <SegmentURL mediaRange=\"").append(segment.offset()).append('-')
+                    .append(segment.offset() + segment.length() - 1).append("\"/>\n");
+        }
+        return mpd.append("        </SegmentList>\n")
+                .append("      </Representation>\n")
+                .append("    </AdaptationSet>\n")
+                .append("  </Period>\n")
+                .append("</MPD>\n")
+                .toString();
+    }
+
+    private static String xml(String value) {
+        return value.replace("&", "&amp;").replace("\"", "&quot;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+}
@@ -0,0 +1,30 @@
+
+package com.example.playback.media;
+
+import java.util.List;
+
+/**
+ * Structure of an MP4 file as far as manifest generation and seeking need it.
+ *
+ * @param initEnd   offset just past the initialization data (everything before the first
+ *                  {@code moof}), or -1 when the file is not fragmented
+ * @param moovStart offset of the {@code moov} box
+ * @param seekIndex keyframes of the timeline track; empty when the sample tables are missing
+ */
+public record Mp4File(long length, long movieTimescale, long movieDuration, long moovStart, long initEnd,
+                      List<Mp4Track> tracks, Mp4Track timelineTrack, List<Mp4Fragment> fragments,
+                      SeekIndex seekIndex) {
+
+    public boolean isFragmented() {
+        return !fragments.isEmpty();
+    }
+
+    public double durationSeconds() {
+        if (isFragmented() && timelineTrack != null) {
+            Mp4Fragment first = fragments.get(0);
+            Mp4Fragment last = fragments.get(fragments.size() - 1);
+            return (double) (last.decodeTime() + last.duration() - first.decodeTime()) / timelineTrack.timescale();
+        }
+        return movieTimescale > 0 ? (double) movieDuration / movieTimescale : 0;
+    }
+}
@@ -0,0 +1,13 @@
+
+package com.example.playback.media;
+
+/**
+ * One {@code moof}+{@code mdat} pair of a fragmented MP4.
+ *
+ * @param offset     file offset of the {@code moof} box
+ * @param end        file offset just past the {@code mdat} box
+ * @param decodeTime start of the fragment on the timeline track, in that track's timescale
+ * @param duration   summed sample durations of the timeline track, in the same timescale
+ */
+public record Mp4Fragment(long offset, long end, long decodeTime, long duration) {
+}
@@ -0,0 +1,485 @@
+
+package com.example.playback.media;
+
+import com.example.playback.storage.RangeReader;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal ISO BMFF reader. Walks the top-level boxes with positional reads, loads the
+ * {@code moov} box once and, for fragmented files, the (small) {@code moof} boxes, and
+ * never touches media data.
+ */
+public final class Mp4Parser {
+
+    private static final long MAX_METADATA_BOX = 64L * 1024 * 1024;
+
+    private static final int TFHD_BASE_DATA_OFFSET = 0x01;
+    private static final int TFHD_SAMPLE_DESCRIPTION_INDEX = 0x02;
+    private static final int TFHD_DEFAULT_SAMPLE_DURATION = 0x08;
+    private static final int TRUN_DATA_OFFSET = 0x01;
+    private static final int TRUN_FIRST_SAMPLE_FLAGS = 0x04;
+    private static final int TRUN_SAMPLE_DURATION = 0x100;
+    private static final int TRUN_SAMPLE_SIZE = 0x200;
+    private static final int TRUN_SAMPLE_FLAGS = 0x400;
+    private static final int TRUN_SAMPLE_CTO = 0x800;
+
+    private final RangeReader reader;
+    private final long length;
+
+    private long movieTimescale;
+    private long movieDuration;
+    private long moovStart = -1;
+    private final List<Mp4Track> tracks = new ArrayList<>();
+    private final Map<Integer, Long> trexDefaultDurations = new HashMap<>();
+    private final List<Mp4Fragment> fragments = new ArrayList<>();
+    private final Map<Integer, SampleTables> sampleTables = new HashMap<>();
+
+    private Mp4Parser(RangeReader reader, long length) {
+        this.reader = reader;
+        this.length = length;
+    }
+
+    public static Mp4File parse(RangeReader reader, long length) throws IOException {
+        return new Mp4Parser(reader, length).parse();
+    }
+
+    private Mp4File parse() throws IOException {
+        long offset = 0;
+        long pendingMoof = -1;
+        long initEnd = -1;
+        long[] pendingTiming = null;
+
+        while (offset + 8 <= length) {
+            ByteBuffer header = read(offset, (int) Math.min(16, length - offset));
+            long size = Integer.toUnsignedLong(header.getInt());
+            String type = fourcc(header);
+            int headerLength = 8;
+            if (size == 1) {
+                size = header.getLong();
+                headerLength = 16;
+            } else if (size == 0) {
+                size = length - offset;
+            }
+            if (size < headerLength || offset + size > length) {
+                throw new IOException("Corrupt MP4 box '" + type + "' at offset " + offset);
+            }
+
+            switch (type) {
+                case "moov" -> {
+                    moovStart = offset;
+                    parseMoov(readBox(offset + headerLength, size - headerLength, type));
+                }
+                case "moof" -> {
+                    if (initEnd < 0) {
+                        initEnd = offset;
+                    }
+                    pendingMoof = offset;
+                    pendingTiming = parseMoof(readBox(offset + headerLength, size - headerLength, type));
+                }
+                case "mdat" -> {
+                    if (pendingMoof >= 0 && pendingTiming != null) {
+                        fragments.add(new Mp4Fragment(pendingMoof, offset + size, pendingTiming[0], pendingTiming[1]));
+                    }
+                    pendingMoof = -1;
+                    pendingTiming = null;
+                }
+                default -> {
+                }
+            }
+            offset += size;
+        }
+
+        if (moovStart < 0) {
+            throw new IOException("Not an MP4 file: no moov box");
+        }
+        fillFragmentDecodeTimes();
+        Mp4Track timeline = timelineTrack();
+        return new Mp4File(length, movieTimescale, movieDuration, moovStart, fragments.isEmpty() ? -1 : initEnd,
+                List.copyOf(tracks), timeline, List.copyOf(fragments), seekIndex(timeline));
+    }
+
+    private void parseMoov(ByteBuffer moov) {
+        forEachChild(moov, (type, box) -> {
+            switch (type) {
+                case "mvhd" -> {
+                    int version = box.get() & 0xff;
+                    box.position(box.position() + 3 + (version == 1 ? 16 : 8));
+                    movieTimescale = Integer.toUnsignedLong(box.getInt());
+                    movieDuration = version == 1 ? box.getLong() : Integer.toUnsignedLong(box.getInt());
+                }
+                case "trak" -> tracks.add(parseTrak(box));
+                case "mvex" -> forEachChild(box, (childType, child) -> {
+                    if ("mehd".equals(childType) && movieDuration == 0) {
+                        int version = child.get() & 0xff;
+                        child.position(child.position() + 3);
+                        movieDuration = version == 1 ? child.getLong() : Integer.toUnsignedLong(child.getInt());
+                    } else if ("trex".equals(childType)) {
+                        child.position(child.position() + 4);
+                        int trackId = child.getInt();
+                        child.getInt();
+                        trexDefaultDurations.put(trackId, Integer.toUnsignedLong(child.getInt()));
+                    }
+                });
+                default -> {
+                }
+            }
+        });
+    }
+
+    private Mp4Track parseTrak(ByteBuffer trak) {
+        TrackBuilder track = new TrackBuilder();
+        forEachChild(trak, (type, box) -> {
+            if ("tkhd".equals(type)) {
+                int version = box.get() & 0xff;
+                box.position(box.position() + 3 + (version == 1 ? 16 : 8));
+                track.id = box.getInt();
+            } else if ("mdia".equals(type)) {
+                parseMdia(box, track);
+            }
+        });
+        sampleTables.put(track.id, track.tables);
+        return new Mp4Track(track.id, track.handler, track.timescale, track.duration, track.codec,
+                track.width, track.height);
+    }
+
+    private void parseMdia(ByteBuffer mdia, TrackBuilder track) {
+        forEachChild(mdia, (type, box) -> {
+            switch (type) {
+                case "mdhd" -> {
+                    int version = box.get() & 0xff;
+                    box.position(box.position() + 3 + (version == 1 ? 16 : 8));
+                    track.timescale = Integer.toUnsignedLong(box.getInt());
+                    track.duration = version == 1 ? box.getLong() : Integer.toUnsignedLong(box.getInt());
+                }
+                case "hdlr" -> {
+                    box.position(box.position() + 8);
+                    track.handler = fourcc(box);
+                }
+                case "minf" -> forEachChild(box, (minfType, minf) -> {
+                    if ("stbl".equals(minfType)) {
+                        forEachChild(minf, (stblType, stbl) -> {
+                            switch (stblType) {
+                                case "stsd" -> parseStsd(stbl, track);
+                                case "stts" -> track.tables.stts = stbl;
+                                case "stss" -> track.tables.stss = stbl;
+                                case "stsc" -> track.tables.stsc = stbl;
+                                case "stsz" -> track.tables.stsz = stbl;
+                                case "stco" -> track.tables.stco = stbl;
+                                case "co64" -> {
+                                    track.tables.stco = stbl;
+                                    track.tables.co64 = true;
+                                }
+                                default -> {
+                                }
+                            }
+                        });
+                    }
+                });
+                default -> {
+                }
+            }
+        });
+    }
+
+    private void parseStsd(ByteBuffer stsd, TrackBuilder track) {
+        stsd.position(stsd.position() + 8);
+        if (stsd.remaining() < 8) {
+            return;
+        }
+        int entryStart = stsd.position();
+        long entrySize = Integer.toUnsignedLong(stsd.getInt());
+        String format = fourcc(stsd);
+        track.codec = format;
+
+        if ("avc1".equals(format) || "avc3".equals(format)) {
+            // VisualSampleEntry: 8 bytes SampleEntry, 16 reserved, width, height, then 50 more bytes
+            stsd.position(entryStart + 8 + 8 + 16);
+            track.width = stsd.getShort() & 0xffff;
+            track.height = stsd.getShort() & 0xffff;
+            ByteBuffer children = stsd.duplicate();
+            children.position(entryStart + 8 + 78);
+            children.limit((int) Math.min(stsd.limit(), entryStart + entrySize));
+            forEachChild(children, (type, box) -> {
+                if ("avcC".equals(type) && box.remaining() >= 4) {
+                    box.get();
+                    track.codec = String.format("%s.%02x%02x%02x", format,
+                            box.get() & 0xff, box.get() & 0xff, box.get() & 0xff);
+                }
+            });
+        } else if ("mp4a".equals(format)) {
+            // AAC-LC; the exact object type would need the esds decoder config
+            track.codec = "mp4a.40.2";
+        }
+    }
+
+    /**
+     * Returns {decodeTime, duration} of the timeline track in this fragment, or null when
+     * the fragment carries no samples for it.
+     */
+    private long[] parseMoof(ByteBuffer moof) {
+        Mp4Track timeline = timelineTrack();
+        if (timeline == null) {
+            return null;
+        }
+        long[] timing = {-1, 0};
+        forEachChild(moof, (type, traf) -> {
+            if (!"traf".equals(type)) {
+                return;
+            }
+            long[] defaultDuration = {trexDefaultDurations.getOrDefault(timeline.id(), 0L)};
+            boolean[] matches = {false};
+            forEachChild(traf, (childType, box) -> {
+                switch (childType) {
+                    case "tfhd" -> {
+                        int flags = box.getInt() & 0xffffff;
+                        matches[0] = box.getInt() == timeline.id();
+                        if ((flags & TFHD_BASE_DATA_OFFSET) != 0) {
+                            box.getLong();
+                        }
+                        if ((flags & TFHD_SAMPLE_DESCRIPTION_INDEX) != 0) {
+                            box.getInt();
+                        }
+                        if ((flags & TFHD_DEFAULT_SAMPLE_DURATION) != 0) {
+                            defaultDuration[0] = Integer.toUnsignedLong(box.getInt());
+                        }
+                    }
+                    case "tfdt" -> {
+                        if (matches[0]) {
+                            int version = box.get() & 0xff;
+                            box.position(box.position() + 3);
+                            timing[0] = version == 1 ? box.getLong() : Integer.toUnsignedLong(box.getInt());
+                        }
+                    }
+                    case "trun" -> {
+                        if (matches[0]) {
+                            timing[1] += trunDuration(box, defaultDuration[0]);
+                        }
+                    }
+                    default -> {
+                    }
+                }
+            });
+        });
+        return timing[1] > 0 || timing[0] >= 0 ? timing : null;
+    }
+
+    private long trunDuration(ByteBuffer trun, long defaultDuration) {
+        int flags = trun.getInt() & 0xffffff;
+        long sampleCount = Integer.toUnsignedLong(trun.getInt());
+        if ((flags & TRUN_SAMPLE_DURATION) == 0) {
+            return sampleCount * defaultDuration;
+        }
+        if ((flags & TRUN_DATA_OFFSET) != 0) {
+            trun.getInt();
+        }
+        if ((flags & TRUN_FIRST_SAMPLE_FLAGS) != 0) {
+            trun.getInt();
+        }
+        int skip = 4 * (Integer.bitCount(flags & (TRUN_SAMPLE_SIZE | TRUN_SAMPLE_FLAGS | TRUN_SAMPLE_CTO)));
+        long total = 0;
+        for (long i = 0; i < sampleCount && trun.remaining() >= 4; i++) {
+            total += Integer.toUnsignedLong(trun.getInt());
+            trun.position(Math.min(trun.limit(), trun.position() + skip));
+        }
+        return total;
+    }
+
+    /**
+     * Fragments without a {@code tfdt} get their start time from the preceding fragments.
+     */
+    private void fillFragmentDecodeTimes() {
+        long next = 0;
+        for (int i = 0; i < fragments.size(); i++) {
+            Mp4Fragment fragment = fragments.get(i);
+            if (fragment.decodeTime() < 0) {
+                fragment = new Mp4Fragment(fragment.offset(), fragment.end(), next, fragment.duration());
+                fragments.set(i, fragment);
+            }
+            next = fragment.decodeTime() + fragment.duration();
+        }
+    }
+
+    private SeekIndex seekIndex(Mp4Track timeline) {
+        if (timeline == null) {
+            return SeekIndex.empty();
+        }
+        if (!fragments.isEmpty()) {
+            SeekIndex.Builder index = new SeekIndex.Builder(timeline.timescale(), fragments.size());
+            for (Mp4Fragment fragment : fragments) {
+                index.add(fragment.decodeTime(), fragment.offset());
+            }
+            return index.build();
+        }
+        SampleTables tables = sampleTables.get(timeline.id());
+        try {
+            return tables != null ? tables.keyframes(timeline.timescale()) : SeekIndex.empty();
+        } catch (RuntimeException e) {
+            // Inconsistent sample tables: seeking is unavailable, playback is unaffected
+            return SeekIndex.empty();
+        }
+    }
+
+    private Mp4Track timelineTrack() {
+        for (Mp4Track track : tracks) {
+            if (track.isVideo()) {
+                return track;
+            }
+        }
+        return tracks.isEmpty() ? null : tracks.get(0);
+    }
+
+    @FunctionalInterface
+    private interface BoxVisitor {
+        void visit(String type, ByteBuffer payload);
+    }
+
+    /**
+     * Calls {@code visitor} with a bounded view of every child box payload in {@code parent}.
+     */
+    private static void forEachChild(ByteBuffer parent, BoxVisitor visitor) {
+        ByteBuffer buffer = parent.duplicate();
+        while (buffer.remaining() >= 8) {
+            int start = buffer.position();
+            long size = Integer.toUnsignedLong(buffer.getInt());
+            String type = fourcc(buffer);
+            int headerLength = 8;
+            if (size == 1) {
+                if (buffer.remaining() < 8) {
+                    return;
+                }
+                size = buffer.getLong();
+                headerLength = 16;
+            } else if (size == 0) {
+                size = buffer.limit() - start;
+            }
+            if (size < headerLength || start + size > buffer.limit()) {
+                return;
+            }
+            ByteBuffer payload = buffer.duplicate();
+            payload.position(start + headerLength).limit((int) (start + size));
+            try {
+                visitor.visit(type, payload.slice());
+            } catch (RuntimeException e) {
+                // A truncated or unexpected box must not abort parsing of its siblings
+            }
+            buffer.position((int) (start + size));
+        }
+    }
+
+    private ByteBuffer readBox(long position, long size, String type) throws IOException {
+        if (size > MAX_METADATA_BOX) {
+            throw new IOException("MP4 '" + type + "' box too large: " + size + " bytes");
+        }
+        return read(position, (int) size);
+    }
+
+    private ByteBuffer read(long position, int size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        while (buffer.hasRemaining()) {
+            if (reader.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of MP4 file at offset " + (position + buffer.position()));
+            }
+        }
+        return buffer.flip();
+    }
+
+    private static String fourcc(ByteBuffer buffer) {
+        byte[] type = new byte[4];
+        buffer.get(type);
+        return new String(type, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Sample table payloads of one track, still backed by the {@code moov} buffer.
+     */
+    private static final class SampleTables {
+        ByteBuffer stts;
+        ByteBuffer stss;
+        ByteBuffer stsc;
+        ByteBuffer stsz;
+        ByteBuffer stco;
+        boolean co64;
+
+        /**
+         * Walks chunks ({@code stco}/{@code co64}, {@code stsc}) and samples ({@code stsz},
+         * {@code stts}) once, recording time and offset of every sync sample ({@code stss}).
+         * Nothing per-sample is retained. Without {@code stss} every sample is a sync sample;
+         * those are thinned to one entry per second.
+         */
+        SeekIndex keyframes(long timescale) {
+            if (stts == null || stsc == null || stsz == null || stco == null || timescale <= 0) {
+                return SeekIndex.empty();
+            }
+            int sampleSize = stsz.getInt(4);
+            int sampleCount = stsz.getInt(8);
+            int chunkCount = stco.getInt(4);
+            int stscCount = stsc.getInt(4);
+            int sttsCount = stts.getInt(4);
+            int syncCount = stss != null ? stss.getInt(4) : -1;
+
+            SeekIndex.Builder index = new SeekIndex.Builder(timescale,
+                    syncCount >= 0 ? syncCount : (int) Math.min(sampleCount, 4096));
+
+            int stscEntry = 0;
+            int sttsEntry = 0;
+            long sttsRemaining = sttsCount > 0 ? Integer.toUnsignedLong(stts.getInt(8)) : 0;
+            int syncEntry = 0;
+            int sample = 0;
+            long time = 0;
+            for (int chunk = 0; chunk < chunkCount && sample < sampleCount; chunk++) {
+                while (stscEntry + 1 < stscCount && chunk + 1 >= stsc.getInt(8 + 12 * (stscEntry + 1))) {
+                    stscEntry++;
+                }
+                int samplesPerChunk = stsc.getInt(8 + 12 * stscEntry + 4);
+                long offset = co64 ? stco.getLong(8 + 8 * chunk) : Integer.toUnsignedLong(stco.getInt(8 + 4 * chunk));
+
+                for (int i = 0; i < samplesPerChunk && sample < sampleCount; i++, sample++) {
+                    boolean sync;
+                    if (syncCount < 0) {
+                        sync = index.isEmpty() || time - index.lastTime() >= timescale;
+                    } else {
+                        // stss lists 1-based sample numbers in increasing order
+                        while (syncEntry < syncCount && stss.getInt(8 + 4 * syncEntry) - 1 < sample) {
+                            syncEntry++;
+                        }
+                        sync = syncEntry < syncCount && stss.getInt(8 + 4 * syncEntry) - 1 == sample;
+                    }
+                    if (sync) {
+                        index.add(time, offset);
+                    }
+
+                    offset += sampleSize != 0 ? Integer.toUnsignedLong(sampleSize)
+                            : Integer.toUnsignedLong(stsz.getInt(12 + 4 * sample));
+                    while (sttsRemaining == 0 && sttsEntry + 1 < sttsCount) {
+                        sttsEntry++;
+                        sttsRemaining = Integer.toUnsignedLong(stts.getInt(8 + 8 * sttsEntry));
+                    }
+                    if (sttsRemaining > 0) {
+                        time += Integer.toUnsignedLong(stts.getInt(8 + 8 * sttsEntry + 4));
+                        sttsRemaining--;
+                    }
+                }
+            }
+            return index.build();
+        }
+    }
+
+    private static final class TrackBuilder {
+        final SampleTables tables = new SampleTables();
+        int id;
+        String handler = "";
+        long timescale;
+        long duration;
+        String codec = "";
+        int width;
+        int height;
+    }
+}
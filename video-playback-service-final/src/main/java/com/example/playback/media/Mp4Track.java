@@ -0,0 +1,15 @@
+
+package com.example.playback.media;
+
+/**
+ * A track declared in the {@code moov} box.
+ *
+ * @param handler  handler type from {@code hdlr}, e.g. {@code vide} or {@code soun}
+ * @param codec    RFC 6381 codec string derived from the first sample entry
+ */
+public record Mp4Track(int id, String handler, long timescale, long duration, String codec, int width, int height) {
+
+    public boolean isVideo() {
+        return "vide".equals(handler);
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.playback.media;
+
+/**
+ * The file is a readable MP4 but not a fragmented one, so it cannot be split into
+ * byte-range segments.
+ */
+public class NotFragmentedException extends RuntimeException {
+
+    public NotFragmentedException() {
+        super("MP4 file is not fragmented");
+    }
+}
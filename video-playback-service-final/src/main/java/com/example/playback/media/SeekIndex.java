@@ -0,0 +1,113 @@
+
+package com.example.playback.media;
+
+import java.util.Arrays;
+
+/**
+ * Keyframe positions of a video track: presentation time (in track timescale units) and
+ * file offset of every sync sample, kept in parallel primitive arrays sorted by time.
+ * For fragmented files the keyframes are the fragment starts.
+ */
+public final class SeekIndex {
+
+    /**
+     * A resolved seek point.
+     *
+     * @param seconds time of the keyframe, at or before the requested time
+     * @param offset  file offset of the keyframe (for fragmented files, of its {@code moof})
+     */
+    public record Keyframe(double seconds, long offset) {
+    }
+
+    private final long timescale;
+    private final long[] times;
+    private final long[] offsets;
+
+    SeekIndex(long timescale, long[] times, long[] offsets) {
+        if (times.length != offsets.length) {
+            throw new IllegalArgumentException("times and offsets differ in length");
+        }
+        this.timescale = timescale;
+        this.times = times;
+        this.offsets = offsets;
+    }
+
+    static SeekIndex empty() {
+        return new SeekIndex(0, new long[0], new long[0]);
+    }
+
+    public boolean isEmpty() {
+        return times.length == 0 || timescale <= 0;
+    }
+
+    public int size() {
+        return times.length;
+    }
+
+    /**
+     * Returns the last keyframe at or before {@code seconds}, or the first keyframe when
+     * {@code seconds} precedes it.
+     */
+    public Keyframe floor(double seconds) {
+        if (isEmpty()) {
+            throw new IllegalStateException("Seek index is empty");
+        }
+        long time = (long) Math.max(0, seconds * timescale);
+        int index = Arrays.binarySearch(times, time);
+        if (index < 0) {
+            index = Math.max(0, -index - 2);
+        }
+        return new Keyframe((double) times[index] / timescale, offsets[index]);
+    }
+
+    /**
+     * Approximate retained heap size, for diagnostics.
+     */
+    public long sizeInBytes() {
+        return 16L * times.length + 48;
+    }
+
+    /**
+     * Growable pair of primitive arrays used while walking the sample tables.
+     */
+    static final class Builder {
+
+        private final long timescale;
+        private long[] times;
+        private long[] offsets;
+        private int size;
+
+        Builder(long timescale, int expected) {
+            this.timescale = timescale;
+            int capacity = Math.max(16, expected);
+            this.times = new long[capacity];
+            this.offsets = new long[capacity];
+        }
+
+        void add(long time, long offset) {
+            if (size > 0 && time <= times[size - 1]) {
+                // Out-of-order or duplicate decode times would break the binary search
+                return;
+            }
+            if (size == times.length) {
+                times = Arrays.copyOf(times, size * 2);
+                offsets = Arrays.copyOf(offsets, size * 2);
+            }
+            times[size] = time;
+            offsets[size] = offset;
+            size++;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        long lastTime() {
+            return times[size - 1];
+        }
+
+        SeekIndex build() {
+            return new SeekIndex(timescale, Arrays.copyOf(times, size), Arrays.copyOf(offsets, size));
+        }
+    }
+}
@@ -0,0 +1,91 @@
+
+package com.example.playback.media;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Keyframe-aligned byte-range segmentation of a fragmented MP4. Each segment is a run of
+ * consecutive {@code moof}+{@code mdat} pairs, so segments start where the muxer started a
+ * fragment (on a keyframe) and can be fetched with plain range requests.
+ *
+ * @param initLength length of the initialization section ({@code ftyp}+{@code moov}) at offset 0
+ * @param timescale  timescale of {@link Segment#start()} and {@link Segment#duration()}
+ */
+public record SegmentPlan(long initLength, long timescale, String codecs, int width, int height,
+                          long bandwidth, List<Segment> segments) {
+
+    public record Segment(long offset, long length, long start, long duration) {
+
+        public double durationSeconds(long timescale) {
+            return (double) duration / timescale;
+        }
+    }
+
+    /**
+     * @throws NotFragmentedException   if the file has no fragments
+     * @throws IllegalArgumentException if the file has no tracks
+     */
+    public static SegmentPlan from(Mp4File file, double targetSegmentSeconds) {
+        if (!file.isFragmented()) {
+            throw new NotFragmentedException();
+        }
+        if (file.timelineTrack() == null) {
+            throw new IllegalArgumentException("MP4 file has no tracks");
+        }
+        Mp4Track timeline = file.timelineTrack();
+        long timescale = timeline.timescale();
+        long target = (long) (targetSegmentSeconds * timescale);
+
+        List<Segment> segments = new ArrayList<>();
+        Mp4Fragment first = null;
+        long end = 0;
+        long duration = 0;
+        for (Mp4Fragment fragment : file.fragments()) {
+            if (first == null) {
+                first = fragment;
+                duration = 0;
+            }
+            end = fragment.end();
+            duration += fragment.duration();
+            if (duration >= target) {
+                segments.add(new Segment(first.offset(), end - first.offset(), first.decodeTime(), duration));
+                first = null;
+            }
+        }
+        if (first != null) {
+            segments.add(new Segment(first.offset(), end - first.offset(), first.decodeTime(), duration));
+        }
+
+        Set<String> codecs = new LinkedHashSet<>();
+        for (Mp4Track track : file.tracks()) {
+            if (!track.codec().isEmpty()) {
+                codecs.add(track.codec());
+            }
+        }
+        double seconds = file.durationSeconds();
+        long mediaBytes = file.length() - file.initEnd();
+        long bandwidth = seconds > 0 ? (long) (mediaBytes * 8 / seconds) : 0;
+
+        return new SegmentPlan(file.initEnd(), timescale, String.join(",", codecs),
+                timeline.width(), timeline.height(), bandwidth, List.copyOf(segments));
+    }
+
+    public double maxSegmentSeconds() {
+        double max = 0;
+        for (Segment segment : segments) {
+            max = Math.max(max, segment.durationSeconds(timescale));
+        }
+        return max;
+    }
+
+    public double durationSeconds() {
+        double total = 0;
+        for (Segment segment : segments) {
+            total += segment.durationSeconds(timescale);
+        }
+        return total;
+    }
+}
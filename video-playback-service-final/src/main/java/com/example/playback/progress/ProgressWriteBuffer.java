@@ -0,0 +1,166 @@
+
+package com.example.playback.progress;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Coalesces progress pings: only the latest position per (user, video) is kept until the
+ * next flush, which upserts all of them in one JDBC batch against the unique
+ * {@code (user_id, video_id)} index. Flushes run every {@code flush-interval}, early once
+ * {@code max-pending} positions are waiting, and once more on shutdown. Positions are not
+ * readable until flushed.
+ */
+@Component
+public class ProgressWriteBuffer {
+
+    private static final Logger log = LoggerFactory.getLogger(ProgressWriteBuffer.class);
+
+    // The WHERE clause keeps a delayed flush (e.g. from another instance) from moving progress back in time
+    private static final String UPSERT_SQL = """
+            INSERT INTO watch_progress (user_id, video_id, watched_seconds, total_seconds, completed, updated_at)
+            VALUES (?, ?, ?, ?, ?, ?)
+            ON CONFLICT (user_id, video_id) DO UPDATE SET
+                watched_seconds = EXCLUDED.watched_seconds,
+                total_seconds = EXCLUDED.total_seconds,
+                completed = EXCLUDED.completed,
+                updated_at = EXCLUDED.updated_at
+            WHERE watch_progress.updated_at IS NULL OR watch_progress.updated_at <= EXCLUDED.updated_at
+            """;
+
+    public record Key(String userId, String videoId) {
+    }
+
+    public record Position(long watchedSeconds, long totalSeconds, boolean completed, LocalDateTime updatedAt) {
+    }
+
+    private final ConcurrentHashMap<Key, Position> pending = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final LongAdder received = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failedFlushes = new LongAdder();
+    private final Timer writes;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Executor executor;
+    private final int maxPending;
+    private final int batchSize;
+
+    public ProgressWriteBuffer(
+            JdbcTemplate jdbcTemplate,
+            @Qualifier("applicationTaskExecutor") Executor executor,
+            @Value("${progress.write.max-pending:5000}") int maxPending,
+            @Value("${progress.write.batch-size:500}") int batchSize,
+            MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.executor = executor;
+        this.maxPending = maxPending;
+        this.batchSize = batchSize;
+
+        Gauge.builder("progress.updates.pending", pending, ConcurrentHashMap::size).register(meterRegistry);
+        FunctionCounter.builder("progress.updates.received", received, LongAdder::sum).register(meterRegistry);
+        FunctionCounter.builder("progress.updates.written", written, LongAdder::sum).register(meterRegistry);
+        FunctionCounter.builder("progress.updates.flush.failures", failedFlushes, LongAdder::sum)
+                .register(meterRegistry);
+        this.writes = Timer.builder("db.writes")
+                .tag("operation", "progress_upsert")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /**
+     * Records the latest position, replacing any position for the same title not yet written.
+     */
+    public void submit(String userId, String videoId, Position position) {
+        received.increment();
+        pending.merge(new Key(userId, videoId), position,
+                (previous, latest) -> latest.updatedAt().isBefore(previous.updatedAt()) ? previous : latest);
+
+        if (pending.size() >= maxPending && flushScheduled.compareAndSet(false, true)) {
+            executor.execute(() -> {
+                try {
+                    flush();
+                } finally {
+                    flushScheduled.set(false);
+                }
+            });
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${progress.write.flush-interval:1s}")
+    public void scheduledFlush() {
+        flush();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    public void flush() {
+        flushLock.lock();
+        try {
+            List<Map.Entry<Key, Position>> batch = new ArrayList<>(Math.min(batchSize, Math.max(pending.size(), 1)));
+            for (Map.Entry<Key, Position> entry : pending.entrySet()) {
+                // A newer ping replaced this position: leave it for the next flush
+                if (!pending.remove(entry.getKey(), entry.getValue())) {
+                    continue;
+                }
+                batch.add(Map.entry(entry.getKey(), entry.getValue()));
+                if (batch.size() >= batchSize) {
+                    write(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                write(batch);
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void write(List<Map.Entry<Key, Position>> batch) {
+        try {
+            writes.record(() -> jdbcTemplate.batchUpdate(UPSERT_SQL, batch, batch.size(), (statement, entry) -> {
+                Key key = entry.getKey();
+                Position position = entry.getValue();
+                statement.setString(1, key.userId());
+                statement.setString(2, key.videoId());
+                statement.setLong(3, position.watchedSeconds());
+                statement.setLong(4, position.totalSeconds());
+                statement.setBoolean(5, position.completed());
+                statement.setTimestamp(6, Timestamp.valueOf(position.updatedAt()));
+            }));
+            written.add(batch.size());
+        } catch (RuntimeException e) {
+            failedFlushes.increment();
+            log.warn("Failed to write {} progress updates, will retry: {}", batch.size(), e.getMessage());
+            for (Map.Entry<Key, Position> entry : batch) {
+                pending.merge(entry.getKey(), entry.getValue(), (newer, failed) -> newer);
+            }
+        }
+    }
+}
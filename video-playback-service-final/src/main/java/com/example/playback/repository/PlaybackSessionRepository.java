@@ -3,9 +3,22 @@ package com.example.playback.repository;
 
 import com.example.playback.entity.PlaybackSession;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 public interface PlaybackSessionRepository extends JpaRepository<PlaybackSession, Long> {
     Optional<PlaybackSession> findBySessionId(String sessionId);
+
+    List<PlaybackSession> findByActiveTrueAndLastHeartbeatAfter(LocalDateTime cutoff);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE PlaybackSession s SET s.active = false WHERE s.active = true AND s.lastHeartbeat < :cutoff")
+    int deactivateStale(@Param("cutoff") LocalDateTime cutoff);
 }
@@ -3,6 +3,14 @@ package com.example.playback.repository;
 
 import com.example.playback.entity.Video;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
 
 public interface VideoRepository extends JpaRepository<Video, String> {
+
+    // A title's own row is one of its variants too
+    @Query("SELECT v FROM Video v WHERE (v.titleId = :titleId OR v.id = :titleId) AND v.quality = :quality ORDER BY v.id LIMIT 1")
+    Optional<Video> findVariant(@Param("titleId") String titleId, @Param("quality") String quality);
 }
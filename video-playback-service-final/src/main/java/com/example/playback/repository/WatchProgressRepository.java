@@ -1,9 +1,12 @@
-
 package com.example.playback.repository;
 
 import com.example.playback.entity.WatchProgress;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -12,4 +15,45 @@ public interface WatchProgressRepository extends JpaRepository<WatchProgress, Lo
     List<WatchProgress> findByUserId(String userId);
     List<WatchProgress> findByVideoId(String videoId);
     List<WatchProgress> findByUserIdAndCompleted(String userId, boolean completed);
+
+    // Keyset pages ordered by (updated_at, id) descending. The "after" variants continue below
+    // the last row of the previous page; the row comparison is an index range condition.
+
+    @Query("""
+            SELECT w.id AS id, w.videoId AS videoId, w.watchedSeconds AS watchedSeconds,
+                   w.totalSeconds AS totalSeconds, w.completed AS completed, w.updatedAt AS updatedAt
+            FROM WatchProgress w
+            WHERE w.userId = :userId AND w.completed = false AND w.updatedAt IS NOT NULL
+            ORDER BY w.updatedAt DESC, w.id DESC""")
+    List<WatchProgressView> findInProgress(@Param("userId") String userId, Limit limit);
+
+    @Query("""
+            SELECT w.id AS id, w.videoId AS videoId, w.watchedSeconds AS watchedSeconds,
+                   w.totalSeconds AS totalSeconds, w.completed AS completed, w.updatedAt AS updatedAt
+            FROM WatchProgress w
+            WHERE w.userId = :userId AND w.completed = false AND w.updatedAt IS NOT NULL
+              AND (w.updatedAt, w.id) < (:updatedAt, :id)
+            ORDER BY w.updatedAt DESC, w.id DESC""")
+    List<WatchProgressView> findInProgressAfter(@Param("userId") String userId,
+                                                @Param("updatedAt") LocalDateTime updatedAt,
+                                                @Param("id") Long id, Limit limit);
+
+    @Query("""
+            SELECT w.id AS id, w.videoId AS videoId, w.watchedSeconds AS watchedSeconds,
+                   w.totalSeconds AS totalSeconds, w.completed AS completed, w.updatedAt AS updatedAt
+            FROM WatchProgress w
+            WHERE w.userId = :userId AND w.updatedAt IS NOT NULL
+            ORDER BY w.updatedAt DESC, w.id DESC""")
+    List<WatchProgressView> findHistory(@Param("userId") String userId, Limit limit);
+
+    @Query("""
+            SELECT w.id AS id, w.videoId AS videoId, w.watchedSeconds AS watchedSeconds,
+                   w.totalSeconds AS totalSeconds, w.completed AS completed, w.updatedAt AS updatedAt
+            FROM WatchProgress w
+            WHERE w.userId = :userId AND w.updatedAt IS NOT NULL
+              AND (w.updatedAt, w.id) < (:updatedAt, :id)
+            ORDER BY w.updatedAt DESC, w.id DESC""")
+    List<WatchProgressView> findHistoryAfter(@Param("userId") String userId,
+                                             @Param("updatedAt") LocalDateTime updatedAt,
+                                             @Param("id") Long id, Limit limit);
 }
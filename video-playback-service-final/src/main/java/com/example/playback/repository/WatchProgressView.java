@@ -0,0 +1,16 @@
+package com.example.playback.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * The watch_progress columns needed to list a user's progress; all of them are in the
+ * covering index, so listing does not touch the table.
+ */
+public interface WatchProgressView {
+    Long getId();
+    String getVideoId();
+    Long getWatchedSeconds();
+    Long getTotalSeconds();
+    Boolean getCompleted();
+    LocalDateTime getUpdatedAt();
+}
@@ -0,0 +1,258 @@
+
+package com.example.playback.service;
+
+import com.example.playback.client.CatalogServiceClient;
+import com.example.playback.dto.catalog.CarouselResponse;
+import com.example.playback.dto.catalog.CategoryResponse;
+import com.example.playback.dto.catalog.ContentBatchResponse;
+import com.example.playback.dto.catalog.ContentPageResponse;
+import com.example.playback.dto.catalog.ContentResponse;
+import com.example.playback.exception.ServiceBusyException;
+import com.example.playback.exception.VideoStreamingException;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.CaffeineSpec;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpStatusCodeException;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * Read-through cache in front of {@link CatalogServiceClient}. Each endpoint has its own
+ * Caffeine spec: {@code refreshAfterWrite} is the freshness TTL after which the cached value
+ * is still served while one background reload runs, {@code expireAfterWrite} bounds how
+ * stale it may get, and {@code maximumSize} bounds memory. Content pages are cached per
+ * query, both typed and as the raw upstream JSON. Concurrent misses on the same key
+ * share a single upstream call. Statistics are published as {@code cache.*} metrics.
+ */
+@Service
+public class CatalogService {
+
+    private static final String ALL = "all";
+
+    private record PageQuery(String type, Long categoryId, String search,
+                             int page, int size, String sortBy, String sortDir) {
+    }
+
+    private final CatalogServiceClient client;
+    private final ThreadPoolExecutor executor;
+    private final MeterRegistry meterRegistry;
+    private final int batchMaxIds;
+    private final int batchParallelism;
+    private final Duration batchTimeout;
+
+    private final LoadingCache<String, List<CategoryResponse>> categories;
+    private final LoadingCache<Long, CategoryResponse> categoriesById;
+    private final LoadingCache<Long, ContentResponse> contentById;
+    private final LoadingCache<PageQuery, ContentPageResponse> contentPages;
+    private final LoadingCache<PageQuery, byte[]> contentPagesJson;
+    private final LoadingCache<String, List<CarouselResponse>> carousel;
+    private final LoadingCache<Long, CarouselResponse> carouselById;
+    private final LoadingCache<String, Map<String, Object>> carouselOverview;
+
+    public CatalogService(
+            CatalogServiceClient client,
+            MeterRegistry meterRegistry,
+            @Value("${catalog.cache.categories:maximumSize=1,refreshAfterWrite=5m,expireAfterWrite=1h}")
+            String categoriesSpec,
+            @Value("${catalog.cache.category:maximumSize=1000,refreshAfterWrite=5m,expireAfterWrite=1h}")
+            String categorySpec,
+            @Value("${catalog.cache.content:maximumSize=10000,refreshAfterWrite=2m,expireAfterWrite=30m}")
+            String contentSpec,
+            @Value("${catalog.cache.content-page:maximumSize=1000,refreshAfterWrite=30s,expireAfterWrite=5m}")
+            String contentPageSpec,
+            @Value("${catalog.cache.carousel:maximumSize=1,refreshAfterWrite=1m,expireAfterWrite=30m}")
+            String carouselSpec,
+            @Value("${catalog.cache.carousel-item:maximumSize=1000,refreshAfterWrite=1m,expireAfterWrite=30m}")
+            String carouselItemSpec,
+            @Value("${catalog.cache.carousel-overview:maximumSize=1,refreshAfterWrite=30s,expireAfterWrite=10m}")
+            String carouselOverviewSpec,
+            @Value("${catalog.batch.max-ids:100}") int batchMaxIds,
+            @Value("${catalog.batch.parallelism:8}") int batchParallelism,
+            @Value("${catalog.batch.timeout:2s}") Duration batchTimeout,
+            @Value("${catalog.fan-out.threads:16}") int fanOutThreads,
+            @Value("${catalog.fan-out.queue-size:256}") int fanOutQueueSize) {
+        this.client = client;
+        // Cache refreshes, batch lookups and home sections; when it is saturated the submitting
+        // thread does the work itself, which slows that request down instead of adding threads
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("catalog-fan-out-");
+        threadFactory.setDaemon(true);
+        this.executor = new ThreadPoolExecutor(fanOutThreads, fanOutThreads, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(fanOutQueueSize), threadFactory, new ThreadPoolExecutor.CallerRunsPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+        this.meterRegistry = meterRegistry;
+        this.batchMaxIds = batchMaxIds;
+        this.batchParallelism = batchParallelism;
+        this.batchTimeout = batchTimeout;
+
+        this.categories = build("catalog.categories", categoriesSpec, key -> client.getAllCategories());
+        this.categoriesById = build("catalog.category", categorySpec, client::getCategoryById);
+        this.contentById = build("catalog.content", contentSpec, client::getContentById);
+        this.contentPages = build("catalog.content.page", contentPageSpec, query -> client.getPublishedContent(
+                query.type(), query.categoryId(), query.search(),
+                query.page(), query.size(), query.sortBy(), query.sortDir()));
+        this.contentPagesJson = build("catalog.content.page.json", contentPageSpec, query -> client.getPublishedContentJson(
+                query.type(), query.categoryId(), query.search(),
+                query.page(), query.size(), query.sortBy(), query.sortDir()));
+        this.carousel = build("catalog.carousel", carouselSpec, key -> client.getAllCarouselItems());
+        this.carouselById = build("catalog.carousel.item", carouselItemSpec, client::getCarouselById);
+        this.carouselOverview = build("catalog.carousel.overview", carouselOverviewSpec,
+                key -> client.getCarouselOverview());
+    }
+
+    public List<CategoryResponse> getAllCategories() {
+        return categories.get(ALL);
+    }
+
+    public CategoryResponse getCategoryById(Long id) {
+        return categoriesById.get(id);
+    }
+
+    public ContentResponse getContentById(Long id) {
+        return contentById.get(id);
+    }
+
+    /**
+     * Looks up many content items at once. Duplicate ids are dropped, cached items are returned
+     * directly and the rest are loaded by at most {@code parallelism} concurrent calls. Items
+     * that fail, or are still loading when {@code timeout} expires, are reported per id in
+     * {@code errors} instead of failing the batch; loads still in flight finish into the cache.
+     */
+    public ContentBatchResponse getContentBatch(Collection<Long> ids) {
+        Set<Long> unique = new LinkedHashSet<>(ids);
+        unique.remove(null);
+        if (unique.size() > batchMaxIds) {
+            throw new VideoStreamingException("At most " + batchMaxIds + " ids may be requested per batch");
+        }
+
+        Map<Long, ContentResponse> found = new ConcurrentHashMap<>(contentById.getAllPresent(unique));
+        Map<Long, ContentBatchResponse.ItemError> failed = new ConcurrentHashMap<>();
+        Queue<Long> misses = new ConcurrentLinkedQueue<>();
+        for (Long id : unique) {
+            if (!found.containsKey(id)) {
+                misses.add(id);
+            }
+        }
+
+        if (!misses.isEmpty()) {
+            long deadline = System.nanoTime() + batchTimeout.toNanos();
+            CompletableFuture<?>[] workers = new CompletableFuture<?>[Math.min(batchParallelism, misses.size())];
+            for (int i = 0; i < workers.length; i++) {
+                workers[i] = CompletableFuture.runAsync(() -> {
+                    Long id;
+                    while (System.nanoTime() < deadline && (id = misses.poll()) != null) {
+                        load(id, found, failed);
+                    }
+                }, executor);
+            }
+            try {
+                CompletableFuture.allOf(workers).get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException | ExecutionException e) {
+                // Whatever has not been loaded by now is reported as timed out below
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        ContentBatchResponse response = new ContentBatchResponse();
+        for (Long id : unique) {
+            ContentResponse content = found.get(id);
+            if (content != null) {
+                response.getItems().add(content);
+            } else {
+                response.getErrors().put(id, failed.getOrDefault(id, new ContentBatchResponse.ItemError(
+                        HttpStatus.GATEWAY_TIMEOUT.value(), "Timed out waiting for catalog-service")));
+            }
+        }
+        return response;
+    }
+
+    public ContentPageResponse getPublishedContent(String type, Long categoryId, String search,
+                                                   int page, int size, String sortBy, String sortDir) {
+        return contentPages.get(new PageQuery(type, categoryId, search, page, size, sortBy, sortDir));
+    }
+
+    /**
+     * The same page as the upstream JSON body, for callers that return it unchanged and so
+     * need not parse and re-serialize it.
+     */
+    public byte[] getPublishedContentJson(String type, Long categoryId, String search,
+                                          int page, int size, String sortBy, String sortDir) {
+        return contentPagesJson.get(new PageQuery(type, categoryId, search, page, size, sortBy, sortDir));
+    }
+
+    public List<CarouselResponse> getAllCarouselItems() {
+        return carousel.get(ALL);
+    }
+
+    public CarouselResponse getCarouselById(Long id) {
+        return carouselById.get(id);
+    }
+
+    public Map<String, Object> getCarouselOverview() {
+        return carouselOverview.get(ALL);
+    }
+
+    /**
+     * Bounded executor for work that waits on catalog-service, so it does not tie up request
+     * threads. Tasks must not wait for other tasks on it.
+     */
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void load(Long id, Map<Long, ContentResponse> found, Map<Long, ContentBatchResponse.ItemError> failed) {
+        try {
+            ContentResponse content = contentById.get(id);
+            if (content != null) {
+                found.put(id, content);
+            } else {
+                failed.put(id, new ContentBatchResponse.ItemError(HttpStatus.NOT_FOUND.value(), "Content not found"));
+            }
+        } catch (HttpStatusCodeException e) {
+            failed.put(id, new ContentBatchResponse.ItemError(e.getStatusCode().value(),
+                    e.getStatusCode().value() == HttpStatus.NOT_FOUND.value() ? "Content not found" : e.getMessage()));
+        } catch (ServiceBusyException e) {
+            failed.put(id, new ContentBatchResponse.ItemError(HttpStatus.SERVICE_UNAVAILABLE.value(), e.getMessage()));
+        } catch (RuntimeException e) {
+            failed.put(id, new ContentBatchResponse.ItemError(HttpStatus.BAD_GATEWAY.value(),
+                    "catalog-service error: " + e.getMessage()));
+        }
+    }
+
+    private <K, V> LoadingCache<K, V> build(String name, String spec, Function<K, V> loader) {
+        LoadingCache<K, V> cache = Caffeine.from(CaffeineSpec.parse(spec))
+                .executor(executor)
+                .recordStats()
+                .build(loader::apply);
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, name);
+        return cache;
+    }
+}
@@ -0,0 +1,132 @@
+
+package com.example.playback.service;
+
+import com.example.playback.dto.HomeResponse;
+import com.example.playback.dto.ProgressPageResponse;
+import com.example.playback.dto.catalog.ContentBatchResponse;
+import com.example.playback.dto.catalog.ContentResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Builds the home screen. The catalog sections are fetched concurrently while the user's
+ * in-progress videos are read on the calling thread; the whole page is bounded by
+ * {@code home.timeout}, and a section that fails or is late is left out rather than
+ * failing the page.
+ */
+@Service
+public class HomeService {
+
+    private static final Logger log = LoggerFactory.getLogger(HomeService.class);
+
+    private final CatalogService catalogService;
+    private final ProgressService progressService;
+    private final Executor executor;
+    private final Duration timeout;
+    private final int continueWatchingLimit;
+
+    public HomeService(
+            CatalogService catalogService,
+            ProgressService progressService,
+            @Value("${home.timeout:2s}") Duration timeout,
+            @Value("${home.continue-watching.limit:20}") int continueWatchingLimit) {
+        this.catalogService = catalogService;
+        this.progressService = progressService;
+        this.executor = catalogService.getExecutor();
+        this.timeout = timeout;
+        this.continueWatchingLimit = continueWatchingLimit;
+    }
+
+    public HomeResponse getHome(String userId) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        var carousel = CompletableFuture.supplyAsync(catalogService::getAllCarouselItems, executor);
+        var categories = CompletableFuture.supplyAsync(catalogService::getAllCategories, executor);
+        var overview = CompletableFuture.supplyAsync(catalogService::getCarouselOverview, executor);
+
+        HomeResponse response = new HomeResponse();
+        response.setUserId(userId);
+        try {
+            response.setContinueWatching(continueWatching(userId));
+        } catch (RuntimeException e) {
+            log.warn("Could not load continue watching for user {}: {}", userId, e.getMessage());
+            response.getErrors().put("continueWatching", e.getMessage());
+        }
+        response.setCarousel(await("carousel", carousel, deadline, response));
+        response.setCategories(await("categories", categories, deadline, response));
+        response.setCarouselOverview(await("carouselOverview", overview, deadline, response));
+        return response;
+    }
+
+    /**
+     * In-progress videos, most recently watched first. Catalog metadata is attached where the
+     * video id is a catalog content id, looked up in one batch.
+     */
+    private List<HomeResponse.ContinueWatchingItem> continueWatching(String userId) {
+        List<ProgressPageResponse.Item> inProgress =
+                progressService.getContinueWatching(userId, null, continueWatchingLimit).getItems();
+
+        List<Long> contentIds = new ArrayList<>();
+        for (ProgressPageResponse.Item progress : inProgress) {
+            Long contentId = contentId(progress.getVideoId());
+            if (contentId != null) {
+                contentIds.add(contentId);
+            }
+        }
+        Map<Long, ContentResponse> contentById = new HashMap<>();
+        if (!contentIds.isEmpty()) {
+            ContentBatchResponse batch = catalogService.getContentBatch(contentIds);
+            for (ContentResponse content : batch.getItems()) {
+                contentById.put(content.getId(), content);
+            }
+        }
+
+        List<HomeResponse.ContinueWatchingItem> items = new ArrayList<>(inProgress.size());
+        for (ProgressPageResponse.Item progress : inProgress) {
+            HomeResponse.ContinueWatchingItem item = new HomeResponse.ContinueWatchingItem();
+            item.setVideoId(progress.getVideoId());
+            item.setWatchedSeconds(progress.getWatchedSeconds());
+            item.setTotalSeconds(progress.getTotalSeconds());
+            item.setUpdatedAt(progress.getUpdatedAt());
+            Long contentId = contentId(progress.getVideoId());
+            item.setContent(contentId != null ? contentById.get(contentId) : null);
+            items.add(item);
+        }
+        return items;
+    }
+
+    private static Long contentId(String videoId) {
+        try {
+            return videoId != null ? Long.valueOf(videoId) : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static <T> T await(String section, CompletableFuture<T> future, long deadline, HomeResponse response) {
+        try {
+            return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            response.getErrors().put(section, "Timed out waiting for catalog-service");
+        } catch (ExecutionException e) {
+            log.warn("Could not load home section {}: {}", section, e.getCause().getMessage());
+            response.getErrors().put(section, e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            response.getErrors().put(section, "Interrupted");
+        }
+        return null;
+    }
+}
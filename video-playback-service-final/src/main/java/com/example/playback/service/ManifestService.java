@@ -0,0 +1,115 @@
+
+package com.example.playback.service;
+
+import com.example.playback.exception.VideoStreamingException;
+import com.example.playback.media.ManifestRenderer;
+import com.example.playback.media.Mp4File;
+import com.example.playback.media.Mp4Parser;
+import com.example.playback.media.NotFragmentedException;
+import com.example.playback.media.SegmentPlan;
+import com.example.playback.storage.RangeReader;
+import com.example.playback.storage.VideoStorage;
+import com.example.playback.streaming.VideoFileMetadata;
+import com.example.playback.util.Bulkhead;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Builds byte-range HLS playlists and DASH manifests for fragmented MP4 files. The box
+ * structure is parsed once per file version (ETag), by the first request that needs it, and
+ * the resulting segment plan cached for the {@code max-entries} most recently used versions.
+ */
+@Service
+public class ManifestService {
+
+    private record PlanKey(String videoId, String etag) {
+    }
+
+    private final StreamingService streamingService;
+    private final VideoStorage storage;
+    private final Bulkhead diskBulkhead;
+    private final double targetSegmentSeconds;
+    private final AsyncCache<PlanKey, SegmentPlan> plans;
+
+    public ManifestService(StreamingService streamingService,
+                           VideoStorage storage,
+                           @Qualifier("diskBulkhead") Bulkhead diskBulkhead,
+                           @Value("${video.manifest.target-segment-duration:6s}") Duration targetSegmentDuration,
+                           @Value("${video.manifest.max-entries:1000}") int maxEntries) {
+        this.streamingService = streamingService;
+        this.storage = storage;
+        this.diskBulkhead = diskBulkhead;
+        this.targetSegmentSeconds = targetSegmentDuration.toMillis() / 1000.0;
+        this.plans = Caffeine.newBuilder().maximumSize(maxEntries).buildAsync();
+    }
+
+    public String hlsPlaylist(String videoId) {
+        return ManifestRenderer.hls(planFor(videoId), mediaUri(videoId));
+    }
+
+    public String dashManifest(String videoId) {
+        return ManifestRenderer.dash(planFor(videoId), mediaUri(videoId), videoId);
+    }
+
+    private SegmentPlan planFor(String videoId) {
+        VideoFileMetadata metadata = streamingService.getMetadata(videoId);
+        PlanKey key = new PlanKey(videoId, metadata.etag());
+        // Parsed outside any map lock; concurrent requests for the same version wait for the first
+        CompletableFuture<SegmentPlan> created = new CompletableFuture<>();
+        CompletableFuture<SegmentPlan> plan = plans.asMap().putIfAbsent(key, created);
+        if (plan == null) {
+            plan = created;
+            try {
+                created.complete(buildPlan(metadata));
+            } catch (RuntimeException e) {
+                // Failed futures are dropped from the cache, so the next request parses again
+                created.completeExceptionally(e);
+            }
+        }
+
+        try {
+            return plan.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof NotFragmentedException) {
+                throw new VideoStreamingException("Video " + videoId + " is not a fragmented MP4; remux it with "
+                        + "'-movflags +frag_keyframe+empty_moov+default_base_moof' to enable HLS/DASH");
+            }
+            if (cause instanceof UncheckedIOException unchecked) {
+                throw StreamingService.readFailure("Error reading MP4 structure of video " + videoId,
+                        unchecked.getCause());
+            }
+            if (cause instanceof IllegalArgumentException) {
+                throw new VideoStreamingException("Error reading MP4 structure of video " + videoId + ": "
+                        + cause.getMessage(), cause);
+            }
+            throw cause instanceof RuntimeException runtimeException ? runtimeException : e;
+        }
+    }
+
+    private SegmentPlan buildPlan(VideoFileMetadata metadata) {
+        try (RangeReader reader = storage.open(metadata.object())) {
+            Mp4File file = diskBulkhead.call(() -> Mp4Parser.parse(reader, metadata.length()));
+            return SegmentPlan.from(file, targetSegmentSeconds);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Manifests are served from {@code /api/stream/{videoId}/...}, so a relative URI resolves
+     * to {@code /api/stream/{videoId}} regardless of any gateway prefix.
+     */
+    private static String mediaUri(String videoId) {
+        return "../" + videoId;
+    }
+}
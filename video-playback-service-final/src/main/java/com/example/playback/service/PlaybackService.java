@@ -3,7 +3,13 @@ package com.example.playback.service;
 
 import com.example.playback.entity.PlaybackSession;
 import com.example.playback.exception.ResourceNotFoundException;
+import com.example.playback.exception.StreamLimitExceededException;
 import com.example.playback.repository.PlaybackSessionRepository;
+import com.example.playback.session.ActiveStreamIndex;
+import com.example.playback.session.PlaybackSessionRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
@@ -13,33 +19,70 @@ import java.util.UUID;
 public class PlaybackService {
 
     private final PlaybackSessionRepository repository;
+    private final PlaybackSessionRegistry registry;
+    private final ActiveStreamIndex activeStreams;
+    private final Timer writes;
 
-    public PlaybackService(PlaybackSessionRepository repository) {
+    @Value("${playback.sessions.max-concurrent-per-user:0}")
+    private int maxConcurrentPerUser;
+
+    public PlaybackService(PlaybackSessionRepository repository, PlaybackSessionRegistry registry,
+                           ActiveStreamIndex activeStreams, MeterRegistry meterRegistry) {
         this.repository = repository;
+        this.registry = registry;
+        this.activeStreams = activeStreams;
+        this.writes = Timer.builder("db.writes")
+                .tag("operation", "session_insert")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
     }
 
     public PlaybackSession startSession(String userId, String videoId) {
+        String sessionId = UUID.randomUUID().toString();
+        if (!activeStreams.tryAdd(userId, videoId, sessionId, maxConcurrentPerUser)) {
+            throw new StreamLimitExceededException(
+                    "Concurrent stream limit of " + maxConcurrentPerUser + " reached for user " + userId);
+        }
+
         PlaybackSession session = new PlaybackSession();
-        session.setSessionId(UUID.randomUUID().toString());
+        session.setSessionId(sessionId);
         session.setUserId(userId);
         session.setVideoId(videoId);
         session.setStartedAt(LocalDateTime.now());
         session.setLastHeartbeat(LocalDateTime.now());
         session.setActive(true);
-        return repository.save(session);
+        PlaybackSession saved;
+        try {
+            saved = writes.record(() -> repository.save(session));
+        } catch (RuntimeException e) {
+            activeStreams.remove(userId, videoId, sessionId);
+            throw e;
+        }
+        registry.register(saved);
+        return saved;
+    }
+
+    public int activeStreamsForUser(String userId) {
+        return activeStreams.countForUser(userId);
+    }
+
+    public int activeStreamsForVideo(String videoId) {
+        return activeStreams.countForVideo(videoId);
     }
 
+    /**
+     * Recorded in memory; persisted by the registry's next batch flush.
+     */
     public void heartbeat(String sessionId) {
-        PlaybackSession session = repository.findBySessionId(sessionId)
-                .orElseThrow(() -> new ResourceNotFoundException("Playback session not found: " + sessionId));
-        session.setLastHeartbeat(LocalDateTime.now());
-        repository.save(session);
+        registry.heartbeat(findLive(sessionId), LocalDateTime.now());
     }
 
     public void stop(String sessionId) {
-        PlaybackSession session = repository.findBySessionId(sessionId)
+        registry.stop(findLive(sessionId));
+    }
+
+    private PlaybackSessionRegistry.LiveSession findLive(String sessionId) {
+        return registry.find(sessionId)
                 .orElseThrow(() -> new ResourceNotFoundException("Playback session not found: " + sessionId));
-        session.setActive(false);
-        repository.save(session);
     }
 }
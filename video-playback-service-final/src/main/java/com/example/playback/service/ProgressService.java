@@ -1,33 +1,122 @@
-
 package com.example.playback.service;
 
+import com.example.playback.dto.ProgressPageResponse;
 import com.example.playback.dto.ProgressRequest;
-import com.example.playback.entity.WatchProgress;
+import com.example.playback.exception.VideoStreamingException;
+import com.example.playback.progress.ProgressWriteBuffer;
 import com.example.playback.repository.WatchProgressRepository;
+import com.example.playback.repository.WatchProgressView;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
 
 @Service
 public class ProgressService {
 
-    private final WatchProgressRepository repository;
+    private final ProgressWriteBuffer writeBuffer;
+    private final WatchProgressRepository progressRepository;
+    private final int maxPageSize;
 
-    public ProgressService(WatchProgressRepository repository) {
-        this.repository = repository;
+    public ProgressService(
+            ProgressWriteBuffer writeBuffer,
+            WatchProgressRepository progressRepository,
+            @Value("${progress.page.max-size:100}") int maxPageSize) {
+        this.writeBuffer = writeBuffer;
+        this.progressRepository = progressRepository;
+        this.maxPageSize = maxPageSize;
     }
 
+    /**
+     * Buffered: the latest position per user and video is upserted on the next flush, so
+     * continue-watching and history show it up to {@code progress.write.flush-interval} later.
+     */
     public void updateProgress(ProgressRequest request) {
-        WatchProgress progress = repository
-                .findByUserIdAndVideoId(request.getUserId(), request.getVideoId())
-                .orElse(new WatchProgress());
-
-        progress.setUserId(request.getUserId());
-        progress.setVideoId(request.getVideoId());
-        progress.setWatchedSeconds(request.getWatchedSeconds());
-        progress.setTotalSeconds(request.getTotalSeconds());
-        progress.setCompleted(request.getWatchedSeconds() >= request.getTotalSeconds());
-        progress.setUpdatedAt(LocalDateTime.now());
-        repository.save(progress);
+        writeBuffer.submit(request.getUserId(), request.getVideoId(), new ProgressWriteBuffer.Position(
+                request.getWatchedSeconds(),
+                request.getTotalSeconds(),
+                request.getWatchedSeconds() >= request.getTotalSeconds(),
+                LocalDateTime.now()));
+    }
+
+    /**
+     * Unfinished videos, most recently watched first.
+     */
+    public ProgressPageResponse getContinueWatching(String userId, String cursor, int size) {
+        int limit = pageSize(size);
+        Cursor after = Cursor.decode(cursor);
+        // One extra row tells whether there is a next page
+        List<WatchProgressView> rows = after == null
+                ? progressRepository.findInProgress(userId, Limit.of(limit + 1))
+                : progressRepository.findInProgressAfter(userId, after.updatedAt(), after.id(), Limit.of(limit + 1));
+        return page(rows, limit);
+    }
+
+    /**
+     * Everything the user has watched, finished or not, most recent first.
+     */
+    public ProgressPageResponse getHistory(String userId, String cursor, int size) {
+        int limit = pageSize(size);
+        Cursor after = Cursor.decode(cursor);
+        List<WatchProgressView> rows = after == null
+                ? progressRepository.findHistory(userId, Limit.of(limit + 1))
+                : progressRepository.findHistoryAfter(userId, after.updatedAt(), after.id(), Limit.of(limit + 1));
+        return page(rows, limit);
+    }
+
+    private int pageSize(int size) {
+        if (size < 1 || size > maxPageSize) {
+            throw new VideoStreamingException("Page size must be between 1 and " + maxPageSize);
+        }
+        return size;
+    }
+
+    private static ProgressPageResponse page(List<WatchProgressView> rows, int limit) {
+        List<ProgressPageResponse.Item> items = new ArrayList<>(Math.min(rows.size(), limit));
+        for (WatchProgressView row : rows.subList(0, Math.min(rows.size(), limit))) {
+            ProgressPageResponse.Item item = new ProgressPageResponse.Item();
+            item.setVideoId(row.getVideoId());
+            item.setWatchedSeconds(row.getWatchedSeconds());
+            item.setTotalSeconds(row.getTotalSeconds());
+            item.setCompleted(Boolean.TRUE.equals(row.getCompleted()));
+            item.setUpdatedAt(row.getUpdatedAt());
+            items.add(item);
+        }
+        ProgressPageResponse response = new ProgressPageResponse();
+        response.setItems(items);
+        if (rows.size() > limit) {
+            WatchProgressView last = rows.get(limit - 1);
+            response.setNextCursor(new Cursor(last.getUpdatedAt(), last.getId()).encode());
+        }
+        return response;
+    }
+
+    /**
+     * Position of the last row of a page: its sort key and id as opaque URL-safe text.
+     */
+    private record Cursor(LocalDateTime updatedAt, Long id) {
+
+        String encode() {
+            return Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString((updatedAt + "," + id).getBytes(StandardCharsets.UTF_8));
+        }
+
+        static Cursor decode(String cursor) {
+            if (cursor == null || cursor.isBlank()) {
+                return null;
+            }
+            try {
+                String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(",", 2);
+                return new Cursor(LocalDateTime.parse(parts[0]), Long.valueOf(parts[1]));
+            } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException | DateTimeParseException e) {
+                throw new VideoStreamingException("Invalid cursor");
+            }
+        }
     }
 }
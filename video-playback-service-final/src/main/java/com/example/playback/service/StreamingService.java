@@ -1,75 +1,247 @@
 
 package com.example.playback.service;
 
+import com.example.playback.exception.RangeNotSatisfiableException;
 import com.example.playback.exception.ResourceNotFoundException;
+import com.example.playback.exception.StorageUnavailableException;
 import com.example.playback.exception.VideoStreamingException;
+import com.example.playback.media.SeekIndex;
+import com.example.playback.storage.RangeReader;
+import com.example.playback.storage.StorageException;
+import com.example.playback.storage.VideoStorage;
+import com.example.playback.streaming.BandwidthPacer;
+import com.example.playback.streaming.ByteRange;
+import com.example.playback.streaming.ByteRangeParser;
+import com.example.playback.streaming.MultipartByteRanges;
+import com.example.playback.streaming.RangeTransfer;
+import com.example.playback.streaming.ReadAheadPrefetcher;
+import com.example.playback.streaming.ResponseChannels;
+import com.example.playback.streaming.SeekIndexCache;
+import com.example.playback.streaming.SegmentCache;
+import com.example.playback.streaming.StreamingMetrics;
+import com.example.playback.streaming.VideoFileMetadata;
+import com.example.playback.streaming.VideoMetadataCache;
+import com.example.playback.streaming.VideoResolver;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.InputStreamResource;
-import org.springframework.core.io.Resource;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.io.*;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.WritableByteChannel;
+import java.time.Duration;
+import java.util.List;
+import java.util.regex.Pattern;
 
 @Service
 public class StreamingService {
 
-    @Value("${video.storage.path:videos}")
-    private String videoStoragePath;
+    private static final Pattern VIDEO_ID = Pattern.compile("^[a-zA-Z0-9_-]+$");
 
-    public ResponseEntity<Resource> streamVideo(String videoId, String range) {
+    // Request attributes understood by Tomcat's NIO connector for kernel sendfile
+    private static final String SENDFILE_SUPPORT_ATTR = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
+    private final RangeTransfer rangeTransfer;
+    private final SegmentCache segmentCache;
+    private final VideoMetadataCache metadataCache;
+    private final BandwidthPacer bandwidthPacer;
+    private final SeekIndexCache seekIndexCache;
+    private final VideoResolver videoResolver;
+    private final ReadAheadPrefetcher readAhead;
+    private final StreamingMetrics metrics;
+    private final VideoStorage storage;
+
+    @Value("${video.streaming.sendfile-enabled:true}")
+    private boolean sendfileEnabled;
+
+    @Value("${video.streaming.open-range-chunk-size:4MB}")
+    private DataSize openRangeChunkSize;
+
+    @Value("${video.streaming.max-ranges:16}")
+    private int maxRanges;
+
+    @Value("${video.streaming.cache-max-age:1h}")
+    private Duration cacheMaxAge;
+
+    public StreamingService(RangeTransfer rangeTransfer, SegmentCache segmentCache,
+                            VideoMetadataCache metadataCache, BandwidthPacer bandwidthPacer,
+                            SeekIndexCache seekIndexCache, VideoResolver videoResolver,
+                            ReadAheadPrefetcher readAhead, StreamingMetrics metrics, VideoStorage storage) {
+        this.rangeTransfer = rangeTransfer;
+        this.segmentCache = segmentCache;
+        this.metadataCache = metadataCache;
+        this.bandwidthPacer = bandwidthPacer;
+        this.seekIndexCache = seekIndexCache;
+        this.videoResolver = videoResolver;
+        this.readAhead = readAhead;
+        this.metrics = metrics;
+        this.storage = storage;
+    }
+
+    public VideoFileMetadata getMetadata(String videoId) {
+        return getMetadata(videoId, null);
+    }
+
+    /**
+     * Resolves the video file, or its {@code quality} variant, and its validators. Both the
+     * resolution and the file metadata are served from caches.
+     */
+    public VideoFileMetadata getMetadata(String videoId, String quality) {
         validateVideoId(videoId);
 
         try {
-            File file = getSecureVideoFile(videoId);
-
-            if (!file.exists() || !file.isFile()) {
+            VideoFileMetadata metadata = metadataCache.get(videoResolver.resolve(videoId, quality));
+            if (metadata == null) {
                 throw new ResourceNotFoundException("Video file not found: " + videoId);
             }
+            return metadata;
+        } catch (IOException e) {
+            throw readFailure("Error reading video metadata: " + videoId, e);
+        } catch (UncheckedIOException e) {
+            throw readFailure("Error reading video metadata: " + videoId, e.getCause());
+        }
+    }
 
-            long length = file.length();
-            long start = 0, end = length - 1;
+    /**
+     * Resolves a playback position to the nearest keyframe at or before it.
+     */
+    public SeekIndex.Keyframe seek(VideoFileMetadata metadata, double seconds) {
+        if (Double.isNaN(seconds) || seconds < 0) {
+            throw new VideoStreamingException("Seek time must be a non-negative number of seconds");
+        }
 
-            if (range != null && range.startsWith("bytes=")) {
-                String[] parts = range.replace("bytes=", "").split("-");
-                start = Long.parseLong(parts[0]);
-                if (parts.length > 1 && !parts[1].isEmpty()) {
-                    end = Long.parseLong(parts[1]);
-                }
+        SeekIndex index;
+        try {
+            index = seekIndexCache.get(metadata);
+        } catch (IOException e) {
+            throw readFailure("Error reading MP4 structure: " + metadata.videoId(), e);
+        }
+        if (index.isEmpty()) {
+            throw new VideoStreamingException("Video " + metadata.videoId() + " has no keyframe index to seek with");
+        }
+        return index.floor(seconds);
+    }
 
-                if (start > end || start < 0 || end >= length) {
-                    throw new VideoStreamingException("Invalid range request");
-                }
-            }
+    public ResponseEntity<StreamingResponseBody> streamVideo(VideoFileMetadata metadata, String range,
+                                                             HttpServletRequest request) {
+        long started = System.nanoTime();
+        long length = metadata.length();
+        List<ByteRange> ranges;
+        try {
+            ranges = ByteRangeParser.parse(range, length, openRangeChunkSize.toBytes(), maxRanges);
+        } catch (RangeNotSatisfiableException e) {
+            metrics.onRangeNotSatisfiable();
+            throw e;
+        }
 
-            long contentLength = end - start + 1;
+        BandwidthPacer.TokenBucket bucket = bandwidthPacer.bucketFor(metadata, request);
 
-            try (FileInputStream fis = new FileInputStream(file)) {
-                long skipped = fis.skip(start);
-                if (skipped != start) {
-                    throw new VideoStreamingException("Failed to skip to requested position");
-                }
+        if (ranges.isEmpty()) {
+            return singleRange(metadata, new ByteRange(0, length - 1), HttpStatus.OK, bucket, request, started);
+        }
+        if (ranges.size() == 1) {
+            return singleRange(metadata, ranges.get(0), HttpStatus.PARTIAL_CONTENT, bucket, request, started);
+        }
+        return multipleRanges(metadata, ranges, bucket, started);
+    }
 
-                HttpHeaders headers = new HttpHeaders();
-                headers.add("Content-Range", "bytes " + start + "-" + end + "/" + length);
-                headers.add("Accept-Ranges", "bytes");
-                headers.setContentLength(contentLength);
+    private ResponseEntity<StreamingResponseBody> singleRange(VideoFileMetadata metadata, ByteRange range,
+                                                              HttpStatus status, BandwidthPacer.TokenBucket bucket,
+                                                              HttpServletRequest request, long started) {
+        String videoId = metadata.videoId();
+        long length = metadata.length();
 
-                return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
-                        .headers(headers)
-                        .contentType(MediaType.valueOf("video/mp4"))
-                        .body(new InputStreamResource(fis));
+        HttpHeaders headers = new HttpHeaders();
+        if (status == HttpStatus.PARTIAL_CONTENT) {
+            headers.add(HttpHeaders.CONTENT_RANGE, range.contentRange(length));
+        }
+        headers.add(HttpHeaders.ACCEPT_RANGES, "bytes");
+        headers.setContentLength(Math.max(range.length(), 0));
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(status)
+                .headers(headers)
+                .cacheControl(cacheControl())
+                .contentType(metadata.contentType());
+
+        metrics.onResponse(status == HttpStatus.PARTIAL_CONTENT, Math.max(range.length(), 0));
+        if (length == 0) {
+            return response.build();
+        }
+        readAhead.onRange(metadata, range, request);
+
+        // Ranges that fit the session's remaining burst are sent unpaced
+        boolean paced = bucket != null && !bucket.tryConsume(range.length());
+
+        // Hot segments are written from the off-heap cache. Cold ranges of local files are handed to the
+        // connector, which pushes them from the page cache to the socket once headers are committed
+        if (!paced && !segmentCache.shouldServe(videoId, range) && useSendfile(metadata, request)) {
+            request.setAttribute(SENDFILE_FILENAME_ATTR, metadata.object().localPath().toString());
+            request.setAttribute(SENDFILE_START_ATTR, range.start());
+            request.setAttribute(SENDFILE_END_ATTR, range.end() + 1);
+            metrics.onSendfile(started, range.length());
+            return response.build();
+        }
+
+        BandwidthPacer.TokenBucket pacing = paced ? bucket : null;
+        return response.body(out -> {
+            try (RangeReader reader = storage.open(metadata.object())) {
+                rangeTransfer.transfer(videoId, reader, length, range, target(out, pacing, started));
             }
+        });
+    }
 
-        } catch (FileNotFoundException e) {
-            throw new ResourceNotFoundException("Video file not found: " + videoId);
-        } catch (IOException e) {
-            throw new VideoStreamingException("Error streaming video: " + videoId, e);
-        } catch (NumberFormatException e) {
-            throw new VideoStreamingException("Invalid range format", e);
+    private ResponseEntity<StreamingResponseBody> multipleRanges(VideoFileMetadata metadata, List<ByteRange> ranges,
+                                                                 BandwidthPacer.TokenBucket bucket, long started) {
+        MultipartByteRanges body = new MultipartByteRanges(ranges, metadata.length(), metadata.contentType().toString());
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(HttpHeaders.ACCEPT_RANGES, "bytes");
+        headers.setContentLength(body.getContentLength());
+        metrics.onResponse(true, ranges.stream().mapToLong(ByteRange::length).toArray());
+
+        return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+                .headers(headers)
+                .cacheControl(cacheControl())
+                .contentType(MediaType.parseMediaType("multipart/byteranges; boundary=" + body.getBoundary()))
+                .body(out -> {
+                    try (RangeReader reader = storage.open(metadata.object())) {
+                        body.writeTo(metadata.videoId(), reader, metadata.length(), rangeTransfer,
+                                target(out, bucket, started));
+                    }
+                });
+    }
+
+    private WritableByteChannel target(OutputStream out, BandwidthPacer.TokenBucket bucket, long started) {
+        WritableByteChannel channel = metrics.meter(ResponseChannels.of(out), started,
+                bucket != null ? StreamingMetrics.Delivery.PACED : StreamingMetrics.Delivery.DIRECT);
+        return bucket != null ? bandwidthPacer.pace(channel, bucket) : channel;
+    }
+
+    private CacheControl cacheControl() {
+        return cacheMaxAge.isZero() ? CacheControl.noCache() : CacheControl.maxAge(cacheMaxAge);
+    }
+
+    private boolean useSendfile(VideoFileMetadata metadata, HttpServletRequest request) {
+        return sendfileEnabled && request != null && metadata.object().localPath() != null
+                && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTR));
+    }
+
+    /**
+     * A failure of the storage backend is reported as such (502/503), anything else about
+     * reading the file as a bad request for that video.
+     */
+    static RuntimeException readFailure(String message, IOException e) {
+        if (e instanceof StorageException storageFailure) {
+            return new StorageUnavailableException(message + ": " + e.getMessage(), storageFailure.isRetryable(), e);
         }
+        return new VideoStreamingException(message + ": " + e.getMessage(), e);
     }
 
     private void validateVideoId(String videoId) {
@@ -81,19 +253,8 @@ public class StreamingService {
             throw new VideoStreamingException("Invalid video ID format");
         }
 
-        if (!videoId.matches("^[a-zA-Z0-9_-]+$")) {
+        if (!VIDEO_ID.matcher(videoId).matches()) {
             throw new VideoStreamingException("Video ID contains invalid characters");
         }
     }
-
-    private File getSecureVideoFile(String videoId) throws IOException {
-        Path basePath = Paths.get(videoStoragePath).toAbsolutePath().normalize();
-        Path videoPath = basePath.resolve(videoId + ".mp4").normalize();
-
-        if (!videoPath.startsWith(basePath)) {
-            throw new VideoStreamingException("Path traversal attempt detected");
-        }
-
-        return videoPath.toFile();
-    }
 }
@@ -1,22 +1,231 @@
-
 package com.example.playback.service;
 
-import com.example.playback.entity.Video;
-import com.example.playback.repository.VideoRepository;
+import com.example.playback.exception.VideoStreamingException;
+import com.example.playback.streaming.VideoResolver;
+import com.example.playback.util.Bulkhead;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tools.jackson.databind.json.JsonMapper;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
 
+/**
+ * Lists the local video library without loading it as entities: rows are read with plain
+ * JDBC, only the requested fields are selected, and listing pages by id so each page is an
+ * index range scan.
+ */
 @Service
 public class VideoService {
 
-    private final VideoRepository repository;
+    // JSON field name to column; listing order is the default field order
+    private static final Map<String, String> COLUMNS = Map.of(
+            "id", "id",
+            "title", "title",
+            "filePath", "file_path",
+            "mimeType", "mime_type",
+            "duration", "duration",
+            "quality", "quality",
+            "titleId", "title_id");
+    private static final List<String> DEFAULT_FIELDS =
+            List.of("id", "title", "filePath", "mimeType", "duration", "quality", "titleId");
+
+    public record VideoFilter(String quality, String mimeType, List<String> fields) {
+    }
+
+    public record VideoPage(List<Map<String, Object>> items, String nextCursor) {
+    }
+
+    private record Query(String sql, List<Object> args, List<String> fields) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate exportJdbcTemplate;
+    private final TransactionTemplate exportTransaction;
+    private final JsonMapper jsonMapper;
+    private final Bulkhead exportBulkhead;
+    private final VideoResolver videoResolver;
+    private final int maxPageSize;
+
+    public VideoService(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            JsonMapper jsonMapper,
+            @Qualifier("exportBulkhead") Bulkhead exportBulkhead,
+            VideoResolver videoResolver,
+            @Value("${video.list.max-size:500}") int maxPageSize,
+            @Value("${video.export.fetch-size:500}") int exportFetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.jsonMapper = jsonMapper;
+        this.exportBulkhead = exportBulkhead;
+        this.videoResolver = videoResolver;
+        this.maxPageSize = maxPageSize;
+
+        // PostgreSQL only streams rows through a cursor inside a transaction; otherwise the
+        // driver reads the whole result before returning the first row
+        this.exportJdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.exportJdbcTemplate.setFetchSize(exportFetchSize);
+        this.exportTransaction = new TransactionTemplate(transactionManager);
+        this.exportTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Every matching video in one list. Large libraries should be paged with
+     * {@link #listVideos} or streamed with {@link #exportVideos} instead.
+     */
+    public List<Map<String, Object>> listAllVideos(VideoFilter filter) {
+        Query query = query(filter, null, 0);
+        return jdbcTemplate.query(query.sql(), (rs, rowNum) -> row(rs, query.fields()), query.args().toArray());
+    }
+
+    public VideoPage listVideos(VideoFilter filter, String cursor, int size) {
+        if (size < 1 || size > maxPageSize) {
+            throw new VideoStreamingException("Page size must be between 1 and " + maxPageSize);
+        }
+        Query query = query(filter, decodeCursor(cursor), size + 1);
+        List<Map<String, Object>> rows = jdbcTemplate.query(query.sql(),
+                (rs, rowNum) -> row(rs, query.fields()), query.args().toArray());
+        if (rows.size() <= size) {
+            return new VideoPage(rows, null);
+        }
+        List<Map<String, Object>> items = rows.subList(0, size);
+        return new VideoPage(items, encodeCursor((String) items.get(size - 1).get("id")));
+    }
+
+    /**
+     * Writes every matching video as one JSON object per line. Rows are fetched through a
+     * database cursor {@code fetch-size} at a time, so memory use does not grow with the
+     * library. Fails fast with 503 when {@code video.export.max-concurrent} exports are running.
+     * <p>
+     * The permit is taken here so that rejection is still a 503, and released when the body
+     * finishes or, if the body never runs (async timeout or error while queued), when the
+     * async request completes.
+     */
+    public StreamingResponseBody exportVideos(VideoFilter filter, HttpServletRequest request) {
+        Query query = query(filter, null, 0);
+        Bulkhead.Permit permit = exportBulkhead.enter();
+        WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(Bulkhead.Permit.class,
+                new CallableProcessingInterceptor() {
+                    @Override
+                    public <T> void afterCompletion(NativeWebRequest webRequest, Callable<T> task) {
+                        permit.close();
+                    }
+                });
+        return outputStream -> {
+            try (permit) {
+                OutputStream out = new BufferedOutputStream(outputStream, 16 * 1024);
+                exportTransaction.executeWithoutResult(status -> exportJdbcTemplate.query(query.sql(), rs -> {
+                    try {
+                        out.write(jsonMapper.writeValueAsBytes(row(rs, query.fields())));
+                        out.write('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }, query.args().toArray()));
+                out.flush();
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        };
+    }
+
+    /**
+     * Drops this instance's cached resolution of the video after its row was changed;
+     * other instances pick the change up when their entries expire.
+     */
+    public void invalidate(String videoId) {
+        videoResolver.invalidate(videoId);
+    }
+
+    private static Query query(VideoFilter filter, String afterId, int limit) {
+        List<String> fields = fields(filter.fields());
+        StringBuilder sql = new StringBuilder("SELECT ");
+        for (int i = 0; i < fields.size(); i++) {
+            sql.append(i > 0 ? ", " : "").append(COLUMNS.get(fields.get(i)));
+        }
+        sql.append(" FROM videos WHERE 1 = 1");
+        List<Object> args = new ArrayList<>(4);
+        if (filter.quality() != null) {
+            sql.append(" AND quality = ?");
+            args.add(filter.quality());
+        }
+        if (filter.mimeType() != null) {
+            sql.append(" AND mime_type = ?");
+            args.add(filter.mimeType());
+        }
+        if (afterId != null) {
+            sql.append(" AND id > ?");
+            args.add(afterId);
+        }
+        sql.append(" ORDER BY id");
+        if (limit > 0) {
+            sql.append(" LIMIT ?");
+            args.add(limit);
+        }
+        return new Query(sql.toString(), args, fields);
+    }
+
+    /**
+     * Requested fields in listing order; {@code id} is always included since pages continue from it.
+     */
+    private static List<String> fields(List<String> requested) {
+        if (requested == null || requested.isEmpty()) {
+            return DEFAULT_FIELDS;
+        }
+        for (String field : requested) {
+            if (!COLUMNS.containsKey(field)) {
+                throw new VideoStreamingException("Unknown field: " + field + ", expected one of " + DEFAULT_FIELDS);
+            }
+        }
+        List<String> fields = new ArrayList<>(DEFAULT_FIELDS.size());
+        for (String field : DEFAULT_FIELDS) {
+            if (field.equals("id") || requested.contains(field)) {
+                fields.add(field);
+            }
+        }
+        return fields;
+    }
+
+    private static Map<String, Object> row(ResultSet rs, List<String> fields) throws SQLException {
+        Map<String, Object> row = new LinkedHashMap<>(fields.size() * 2);
+        for (int i = 0; i < fields.size(); i++) {
+            row.put(fields.get(i), rs.getObject(i + 1));
+        }
+        return row;
+    }
 
-    public VideoService(VideoRepository repository) {
-        this.repository = repository;
+    private static String encodeCursor(String id) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(id.getBytes(StandardCharsets.UTF_8));
     }
 
-    public List<Video> getAllVideos() {
-        return repository.findAll();
+    private static String decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new VideoStreamingException("Invalid cursor");
+        }
     }
 }
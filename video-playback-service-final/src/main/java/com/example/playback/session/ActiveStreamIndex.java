@@ -0,0 +1,94 @@
+
+package com.example.playback.session;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Active playback sessions grouped by user and by video, so concurrent-stream checks and
+ * counts are map lookups instead of table scans. Maintained by {@link PlaybackSessionRegistry}.
+ */
+@Component
+public class ActiveStreamIndex {
+
+    private final ConcurrentHashMap<String, Set<String>> byUser = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Set<String>> byVideo = new ConcurrentHashMap<>();
+
+    public ActiveStreamIndex(MeterRegistry meterRegistry) {
+        Gauge.builder("playback.streams.active", this, ActiveStreamIndex::getTotal).register(meterRegistry);
+    }
+
+    /**
+     * Adds the session unless the user already has {@code maxPerUser} active streams
+     * ({@code 0} means unlimited). The check and the add are atomic per user.
+     */
+    public boolean tryAdd(String userId, String videoId, String sessionId, int maxPerUser) {
+        if (userId == null) {
+            addTo(byVideo, videoId, sessionId);
+            return true;
+        }
+        boolean[] added = {false};
+        byUser.compute(userId, (id, sessions) -> {
+            Set<String> current = sessions != null ? sessions : ConcurrentHashMap.newKeySet();
+            if (maxPerUser <= 0 || current.size() < maxPerUser || current.contains(sessionId)) {
+                current.add(sessionId);
+                added[0] = true;
+            }
+            return current.isEmpty() ? null : current;
+        });
+        if (added[0]) {
+            addTo(byVideo, videoId, sessionId);
+        }
+        return added[0];
+    }
+
+    public void add(String userId, String videoId, String sessionId) {
+        tryAdd(userId, videoId, sessionId, 0);
+    }
+
+    public void remove(String userId, String videoId, String sessionId) {
+        removeFrom(byUser, userId, sessionId);
+        removeFrom(byVideo, videoId, sessionId);
+    }
+
+    public int countForUser(String userId) {
+        Set<String> sessions = byUser.get(userId);
+        return sessions != null ? sessions.size() : 0;
+    }
+
+    public int countForVideo(String videoId) {
+        Set<String> sessions = byVideo.get(videoId);
+        return sessions != null ? sessions.size() : 0;
+    }
+
+    public int getTotal() {
+        int total = 0;
+        for (Set<String> sessions : byUser.values()) {
+            total += sessions.size();
+        }
+        return total;
+    }
+
+    private static void addTo(ConcurrentHashMap<String, Set<String>> index, String key, String sessionId) {
+        if (key != null) {
+            index.compute(key, (k, sessions) -> {
+                Set<String> current = sessions != null ? sessions : ConcurrentHashMap.newKeySet();
+                current.add(sessionId);
+                return current;
+            });
+        }
+    }
+
+    private static void removeFrom(ConcurrentHashMap<String, Set<String>> index, String key, String sessionId) {
+        if (key != null) {
+            index.computeIfPresent(key, (k, sessions) -> {
+                sessions.remove(sessionId);
+                return sessions.isEmpty() ? null : sessions;
+            });
+        }
+    }
+}
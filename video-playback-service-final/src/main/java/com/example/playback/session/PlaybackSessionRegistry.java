@@ -0,0 +1,268 @@
+
+package com.example.playback.session;
+
+import com.example.playback.entity.PlaybackSession;
+import com.example.playback.repository.PlaybackSessionRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Live view of playback sessions. Heartbeats and stops only touch memory; changed sessions
+ * are written to {@code playback_sessions} in JDBC batches every {@code flush-interval}, or
+ * as soon as {@code max-pending} sessions are waiting, and once more on shutdown.
+ * Sessions not seen since startup are loaded from the database on first use.
+ */
+@Component
+public class PlaybackSessionRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(PlaybackSessionRegistry.class);
+
+    private static final String UPDATE_SQL =
+            "UPDATE playback_sessions SET last_heartbeat = ?, active = ? WHERE session_id = ?";
+
+    /**
+     * In-memory state of one session. Only {@code lastHeartbeat} and {@code active} change.
+     */
+    public static final class LiveSession {
+        private final String sessionId;
+        private final String userId;
+        private final String videoId;
+        private volatile LocalDateTime lastHeartbeat;
+        private volatile boolean active;
+
+        LiveSession(PlaybackSession session) {
+            this.sessionId = session.getSessionId();
+            this.userId = session.getUserId();
+            this.videoId = session.getVideoId();
+            this.lastHeartbeat = session.getLastHeartbeat();
+            this.active = session.isActive();
+        }
+
+        public String getSessionId() {
+            return sessionId;
+        }
+
+        public String getUserId() {
+            return userId;
+        }
+
+        public String getVideoId() {
+            return videoId;
+        }
+
+        public LocalDateTime getLastHeartbeat() {
+            return lastHeartbeat;
+        }
+
+        public boolean isActive() {
+            return active;
+        }
+    }
+
+    private record PendingUpdate(LiveSession session, LocalDateTime lastHeartbeat, boolean active) {
+    }
+
+    private final ConcurrentHashMap<String, LiveSession> sessions = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LiveSession> dirty = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final LongAdder flushedRows = new LongAdder();
+    private final LongAdder failedFlushes = new LongAdder();
+    private final Timer writes;
+
+    private final PlaybackSessionRepository repository;
+    private final ActiveStreamIndex activeStreams;
+    private final JdbcTemplate jdbcTemplate;
+    private final Executor executor;
+    private final int maxPending;
+    private final int batchSize;
+    private final Duration idleEviction;
+
+    public PlaybackSessionRegistry(
+            PlaybackSessionRepository repository,
+            ActiveStreamIndex activeStreams,
+            JdbcTemplate jdbcTemplate,
+            @Qualifier("applicationTaskExecutor") Executor executor,
+            @Value("${playback.sessions.max-pending:1000}") int maxPending,
+            @Value("${playback.sessions.batch-size:500}") int batchSize,
+            @Value("${playback.sessions.idle-eviction:10m}") Duration idleEviction,
+            MeterRegistry meterRegistry) {
+        this.repository = repository;
+        this.activeStreams = activeStreams;
+        this.jdbcTemplate = jdbcTemplate;
+        this.executor = executor;
+        this.maxPending = maxPending;
+        this.batchSize = batchSize;
+        this.idleEviction = idleEviction;
+
+        Gauge.builder("playback.sessions.live", sessions, ConcurrentHashMap::size).register(meterRegistry);
+        Gauge.builder("playback.sessions.pending", dirty, ConcurrentHashMap::size).register(meterRegistry);
+        FunctionCounter.builder("playback.sessions.flushed", flushedRows, LongAdder::sum).register(meterRegistry);
+        FunctionCounter.builder("playback.sessions.flush.failures", failedFlushes, LongAdder::sum)
+                .register(meterRegistry);
+        this.writes = Timer.builder("db.writes")
+                .tag("operation", "session_update")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /**
+     * Tracks a session that has just been inserted or was loaded from the database.
+     */
+    public LiveSession register(PlaybackSession session) {
+        LiveSession live = new LiveSession(session);
+        sessions.put(live.getSessionId(), live);
+        if (live.active) {
+            activeStreams.add(live.userId, live.videoId, live.sessionId);
+        }
+        return live;
+    }
+
+    /**
+     * Returns the live session, loading it from the database when it is not in memory.
+     */
+    public Optional<LiveSession> find(String sessionId) {
+        LiveSession live = sessions.get(sessionId);
+        if (live != null) {
+            return Optional.of(live);
+        }
+        return repository.findBySessionId(sessionId).map(session -> {
+            LiveSession existing = sessions.get(sessionId);
+            return existing != null ? existing : register(session);
+        });
+    }
+
+    public void heartbeat(LiveSession session, LocalDateTime at) {
+        session.lastHeartbeat = at;
+        markDirty(session);
+    }
+
+    public void stop(LiveSession session) {
+        session.active = false;
+        activeStreams.remove(session.userId, session.videoId, session.sessionId);
+        markDirty(session);
+    }
+
+    /**
+     * Marks in-memory sessions silent since before {@code cutoff} inactive. The database rows
+     * are deactivated separately by a set-based update, so nothing is queued for flushing.
+     */
+    public int expire(LocalDateTime cutoff) {
+        int expired = 0;
+        for (LiveSession session : sessions.values()) {
+            if (session.active && session.lastHeartbeat != null && session.lastHeartbeat.isBefore(cutoff)) {
+                session.active = false;
+                activeStreams.remove(session.userId, session.videoId, session.sessionId);
+                expired++;
+            }
+        }
+        return expired;
+    }
+
+    private void markDirty(LiveSession session) {
+        dirty.put(session.getSessionId(), session);
+        if (dirty.size() >= maxPending && flushScheduled.compareAndSet(false, true)) {
+            executor.execute(() -> {
+                try {
+                    flush();
+                } finally {
+                    flushScheduled.set(false);
+                }
+            });
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${playback.sessions.flush-interval:2s}")
+    public void scheduledFlush() {
+        flush();
+        evictIdle();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    /**
+     * Writes every pending session in batches of {@code batch-size}. Failed batches are
+     * marked dirty again and retried on the next flush.
+     */
+    public void flush() {
+        flushLock.lock();
+        try {
+            List<PendingUpdate> batch = new ArrayList<>(Math.min(batchSize, Math.max(dirty.size(), 1)));
+            Iterator<LiveSession> pending = dirty.values().iterator();
+            while (pending.hasNext()) {
+                LiveSession session = pending.next();
+                // Remove before reading so a concurrent heartbeat re-marks the session
+                pending.remove();
+                batch.add(new PendingUpdate(session, session.lastHeartbeat, session.active));
+                if (batch.size() >= batchSize) {
+                    write(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                write(batch);
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void write(List<PendingUpdate> batch) {
+        try {
+            writes.record(() -> jdbcTemplate.batchUpdate(UPDATE_SQL, batch, batch.size(), (statement, update) -> {
+                statement.setTimestamp(1, update.lastHeartbeat() != null
+                        ? Timestamp.valueOf(update.lastHeartbeat()) : null);
+                statement.setBoolean(2, update.active());
+                statement.setString(3, update.session().getSessionId());
+            }));
+            flushedRows.add(batch.size());
+        } catch (RuntimeException e) {
+            failedFlushes.increment();
+            log.warn("Failed to persist {} playback session updates, will retry: {}", batch.size(), e.getMessage());
+            for (PendingUpdate update : batch) {
+                dirty.putIfAbsent(update.session().getSessionId(), update.session());
+            }
+        }
+    }
+
+    /**
+     * Drops stopped or silent sessions that have already been persisted.
+     */
+    private void evictIdle() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(idleEviction);
+        sessions.values().removeIf(session -> {
+            boolean evict = !dirty.containsKey(session.getSessionId())
+                    && (!session.active || session.lastHeartbeat == null || session.lastHeartbeat.isBefore(cutoff));
+            if (evict && session.active) {
+                activeStreams.remove(session.userId, session.videoId, session.sessionId);
+            }
+            return evict;
+        });
+    }
+}
@@ -0,0 +1,75 @@
+
+package com.example.playback.session;
+
+import com.example.playback.entity.PlaybackSession;
+import com.example.playback.repository.PlaybackSessionRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Deactivates sessions whose player stopped sending heartbeats without calling stop.
+ * The database side is one set-based UPDATE on the (active, last_heartbeat) index.
+ */
+@Component
+public class SessionReaper {
+
+    private static final Logger log = LoggerFactory.getLogger(SessionReaper.class);
+
+    private final PlaybackSessionRepository repository;
+    private final PlaybackSessionRegistry registry;
+    private final Duration ttl;
+    private final Timer writes;
+
+    public SessionReaper(PlaybackSessionRepository repository,
+                         PlaybackSessionRegistry registry,
+                         @Value("${playback.sessions.heartbeat-ttl:2m}") Duration ttl,
+                         MeterRegistry meterRegistry) {
+        this.repository = repository;
+        this.registry = registry;
+        this.ttl = ttl;
+        this.writes = Timer.builder("db.writes")
+                .tag("operation", "session_reap")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /**
+     * Rebuilds the active-stream index from sessions that were still live at shutdown.
+     */
+    @PostConstruct
+    public void loadActiveSessions() {
+        int loaded = 0;
+        for (PlaybackSession session : repository.findByActiveTrueAndLastHeartbeatAfter(cutoff())) {
+            registry.register(session);
+            loaded++;
+        }
+        if (loaded > 0) {
+            log.info("Loaded {} active playback sessions", loaded);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${playback.sessions.reap-interval:30s}")
+    public void reap() {
+        LocalDateTime cutoff = cutoff();
+        // Persist pending heartbeats first so live sessions are not reaped on stale timestamps
+        registry.flush();
+        int reaped = writes.record(() -> repository.deactivateStale(cutoff));
+        int expired = registry.expire(cutoff);
+        if (reaped > 0 || expired > 0) {
+            log.info("Reaped {} stale playback sessions ({} tracked in memory)", reaped, expired);
+        }
+    }
+
+    private LocalDateTime cutoff() {
+        return LocalDateTime.now().minus(ttl);
+    }
+}
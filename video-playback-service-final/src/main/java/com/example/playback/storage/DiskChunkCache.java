@@ -0,0 +1,378 @@
+package com.example.playback.storage;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Read-through cache of fixed-size chunks of remote objects on local disk, so hot titles
+ * are served from local SSD and the remote tier only sees each chunk once per eviction.
+ * <p>
+ * A miss downloads the whole chunk with one ranged request, writes it to a temporary file
+ * and moves it into place; concurrent misses on the same chunk wait for that one download.
+ * Chunks are evicted in LRU order once {@code maxSize} is exceeded. Chunk directories are
+ * named after the object's key, length, modification time and the chunk size, so a
+ * replaced object never reads stale chunks, and chunks left by an earlier run are picked
+ * up again on startup.
+ */
+public class DiskChunkCache implements VideoStorage {
+
+    private static final Logger log = LoggerFactory.getLogger(DiskChunkCache.class);
+
+    private static final String CHUNK_SUFFIX = ".chunk";
+    private static final String PARTIAL_SUFFIX = ".part";
+    private static final HexFormat HEX = HexFormat.of();
+
+    private record ChunkKey(String object, long index) {
+    }
+
+    private record RestoredChunk(ChunkKey key, long size, long modified) {
+    }
+
+    private final VideoStorage remote;
+    private final Path directory;
+    private final long maxBytes;
+    private final int chunkSize;
+
+    // Chunk sizes in LRU order; guarded by this
+    private final LinkedHashMap<ChunkKey, Long> chunks = new LinkedHashMap<>(1024, 0.75f, true);
+    private long usedBytes;
+    private final ConcurrentHashMap<ChunkKey, CompletableFuture<Path>> loading = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder filledBytes = new LongAdder();
+
+    public DiskChunkCache(VideoStorage remote, Path directory, long maxBytes, int chunkSize,
+                          MeterRegistry meterRegistry) throws IOException {
+        this.remote = remote;
+        this.directory = directory.toAbsolutePath().normalize();
+        this.maxBytes = maxBytes;
+        this.chunkSize = chunkSize;
+
+        Files.createDirectories(this.directory);
+        restore();
+
+        FunctionCounter.builder("video.storage.cache.requests", hits, LongAdder::sum)
+                .tag("result", "hit").register(meterRegistry);
+        FunctionCounter.builder("video.storage.cache.requests", misses, LongAdder::sum)
+                .tag("result", "miss").register(meterRegistry);
+        FunctionCounter.builder("video.storage.cache.evictions", evictions, LongAdder::sum)
+                .register(meterRegistry);
+        FunctionCounter.builder("video.storage.cache.filled", filledBytes, LongAdder::sum)
+                .baseUnit("bytes").register(meterRegistry);
+        Gauge.builder("video.storage.cache.size", this, DiskChunkCache::getUsedBytes)
+                .baseUnit("bytes").register(meterRegistry);
+    }
+
+    @Override
+    public String keyOf(String storedPath) {
+        return remote.keyOf(storedPath);
+    }
+
+    @Override
+    public StoredObject stat(String key) throws IOException {
+        return remote.stat(key);
+    }
+
+    @Override
+    public RangeReader open(StoredObject object) {
+        return new CachedReader(object);
+    }
+
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    /**
+     * Reads through the chunk files of one object, keeping the current chunk open across
+     * consecutive reads. The remote reader is only opened on a miss.
+     */
+    private final class CachedReader implements RangeReader {
+
+        private final StoredObject object;
+        private final String objectId;
+        private RangeReader remoteReader;
+        private long currentIndex = -1;
+        private FileChannel current;
+
+        private CachedReader(StoredObject object) {
+            this.object = object;
+            this.objectId = objectId(object);
+        }
+
+        @Override
+        public int read(ByteBuffer dst, long position) throws IOException {
+            if (position >= object.length()) {
+                return -1;
+            }
+            long index = position / chunkSize;
+            int read = channel(index).read(dst, position - index * chunkSize);
+            if (read < 0) {
+                throw new EOFException("Cached chunk " + index + " of " + object.key() + " is truncated");
+            }
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                if (current != null) {
+                    current.close();
+                }
+            } finally {
+                if (remoteReader != null) {
+                    remoteReader.close();
+                }
+            }
+        }
+
+        private FileChannel channel(long index) throws IOException {
+            if (index == currentIndex) {
+                return current;
+            }
+            if (current != null) {
+                current.close();
+                current = null;
+                currentIndex = -1;
+            }
+            ChunkKey key = new ChunkKey(objectId, index);
+            try {
+                current = FileChannel.open(chunk(key, this), StandardOpenOption.READ);
+            } catch (NoSuchFileException e) {
+                // Evicted between lookup and open; an open channel keeps reading after eviction
+                forget(key);
+                current = FileChannel.open(chunk(key, this), StandardOpenOption.READ);
+            }
+            currentIndex = index;
+            return current;
+        }
+
+        private RangeReader remote() throws IOException {
+            if (remoteReader == null) {
+                remoteReader = remote.open(object);
+            }
+            return remoteReader;
+        }
+    }
+
+    private Path chunk(ChunkKey key, CachedReader reader) throws IOException {
+        synchronized (this) {
+            if (chunks.get(key) != null) {
+                hits.increment();
+                return file(key);
+            }
+        }
+        misses.increment();
+
+        CompletableFuture<Path> download = new CompletableFuture<>();
+        CompletableFuture<Path> pending = loading.putIfAbsent(key, download);
+        if (pending != null) {
+            return await(pending);
+        }
+        try {
+            // Another download may have finished between the lookup and claiming this one
+            synchronized (this) {
+                if (chunks.containsKey(key)) {
+                    download.complete(file(key));
+                    return file(key);
+                }
+            }
+            Path file = fill(key, reader);
+            download.complete(file);
+            return file;
+        } catch (IOException | RuntimeException e) {
+            download.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, download);
+        }
+    }
+
+    private Path fill(ChunkKey key, CachedReader reader) throws IOException {
+        long start = key.index() * chunkSize;
+        long count = Math.min(chunkSize, reader.object.length() - start);
+        Path objectDirectory = directory.resolve(key.object());
+        Files.createDirectories(objectDirectory);
+        Path temp = Files.createTempFile(objectDirectory, key.index() + "-", PARTIAL_SUFFIX);
+        try {
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                reader.remote().transferTo(start, count, out);
+                // A chunk that is renamed into place must never turn out torn after a crash
+                out.force(false);
+            }
+            Path file = file(key);
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            filledBytes.add(count);
+            register(key, count);
+            return file;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private void register(ChunkKey key, long size) {
+        List<ChunkKey> evicted = new ArrayList<>();
+        synchronized (this) {
+            Long previous = chunks.put(key, size);
+            usedBytes += size - (previous != null ? previous : 0);
+            Iterator<Map.Entry<ChunkKey, Long>> it = chunks.entrySet().iterator();
+            while (usedBytes > maxBytes && it.hasNext()) {
+                Map.Entry<ChunkKey, Long> eldest = it.next();
+                if (eldest.getKey().equals(key)) {
+                    continue;
+                }
+                usedBytes -= eldest.getValue();
+                evicted.add(eldest.getKey());
+                it.remove();
+            }
+        }
+        for (ChunkKey victim : evicted) {
+            try {
+                Files.deleteIfExists(file(victim));
+                evictions.increment();
+            } catch (IOException e) {
+                log.warn("Could not delete evicted chunk {}: {}", file(victim), e.getMessage());
+            }
+        }
+    }
+
+    private synchronized void forget(ChunkKey key) {
+        Long size = chunks.remove(key);
+        if (size != null) {
+            usedBytes -= size;
+        }
+    }
+
+    private Path file(ChunkKey key) {
+        return directory.resolve(key.object()).resolve(key.index() + CHUNK_SUFFIX);
+    }
+
+    private String objectId(StoredObject object) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(object.key().getBytes(StandardCharsets.UTF_8));
+            return HEX.formatHex(hash, 0, 16) + "-" + Long.toHexString(object.length()) + "-"
+                    + Long.toHexString(object.lastModified()) + "-" + Integer.toHexString(chunkSize);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Path await(CompletableFuture<Path> download) throws IOException {
+        try {
+            return download.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a chunk download");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException("Chunk download failed", e.getCause());
+        }
+    }
+
+    /**
+     * Registers chunks left by an earlier run in the order they were downloaded, and removes
+     * partial downloads, chunks written with another chunk size and anything that does not
+     * look like a chunk of the right length.
+     */
+    private void restore() throws IOException {
+        List<RestoredChunk> restored = new ArrayList<>();
+        try (DirectoryStream<Path> objects = Files.newDirectoryStream(directory, Files::isDirectory)) {
+            for (Path objectDirectory : objects) {
+                String objectId = objectDirectory.getFileName().toString();
+                long objectLength = restorableLength(objectId);
+                try (DirectoryStream<Path> files = Files.newDirectoryStream(objectDirectory)) {
+                    for (Path file : files) {
+                        RestoredChunk chunk = objectLength < 0 ? null : restorable(objectId, objectLength, file);
+                        if (chunk == null) {
+                            Files.deleteIfExists(file);
+                        } else {
+                            restored.add(chunk);
+                        }
+                    }
+                }
+                if (restored.isEmpty() || !restored.get(restored.size() - 1).key().object().equals(objectId)) {
+                    Files.deleteIfExists(objectDirectory);
+                }
+            }
+        } catch (DirectoryIteratorException e) {
+            throw e.getCause();
+        }
+
+        restored.sort(Comparator.comparingLong(RestoredChunk::modified));
+        for (RestoredChunk chunk : restored) {
+            register(chunk.key(), chunk.size());
+        }
+        if (!restored.isEmpty()) {
+            log.info("Restored {} cached video chunks ({} bytes) from {}", restored.size(), getUsedBytes(), directory);
+        }
+    }
+
+    /**
+     * The object length encoded in a chunk directory's name, or {@code -1} when the
+     * directory was written with another chunk size or is not a chunk directory at all.
+     */
+    private long restorableLength(String objectId) {
+        String[] parts = objectId.split("-");
+        try {
+            if (parts.length == 4 && Integer.parseInt(parts[3], 16) == chunkSize) {
+                return Long.parseLong(parts[1], 16);
+            }
+        } catch (NumberFormatException e) {
+            // Not one of ours
+        }
+        return -1;
+    }
+
+    private RestoredChunk restorable(String objectId, long objectLength, Path file) throws IOException {
+        String name = file.getFileName().toString();
+        if (!name.endsWith(CHUNK_SUFFIX)) {
+            return null;
+        }
+        long index;
+        try {
+            index = Long.parseLong(name.substring(0, name.length() - CHUNK_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        long expected = Math.min(chunkSize, objectLength - index * chunkSize);
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        if (index < 0 || expected <= 0 || !attributes.isRegularFile() || attributes.size() != expected) {
+            return null;
+        }
+        return new RestoredChunk(new ChunkKey(objectId, index), expected, attributes.lastModifiedTime().toMillis());
+    }
+}
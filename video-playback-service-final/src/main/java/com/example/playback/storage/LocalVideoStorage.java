@@ -0,0 +1,90 @@
+package com.example.playback.storage;
+
+import com.example.playback.exception.VideoStreamingException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Videos in a local directory ({@code video.storage.path}). Keys are paths relative to it;
+ * objects carry their real path so ranges can go out through sendfile.
+ */
+public class LocalVideoStorage implements VideoStorage {
+
+    private final Path basePath;
+
+    public LocalVideoStorage(String storagePath) {
+        this.basePath = Paths.get(storagePath).toAbsolutePath().normalize();
+    }
+
+    /**
+     * Stored paths are relative to the storage directory; the form that repeats the storage
+     * directory's own name ({@code videos/a.mp4} with storage {@code videos}) and absolute
+     * paths inside it are accepted too.
+     */
+    @Override
+    public String keyOf(String storedPath) {
+        Path stored;
+        try {
+            stored = Paths.get(storedPath);
+        } catch (InvalidPathException e) {
+            throw new VideoStreamingException("Invalid stored video path: " + storedPath);
+        }
+        Path path;
+        if (stored.isAbsolute()) {
+            path = stored.normalize();
+        } else {
+            path = basePath.resolve(stored).normalize();
+            if (!Files.exists(path) && stored.getNameCount() > 1 && stored.getName(0).equals(basePath.getFileName())
+                    && basePath.getParent() != null) {
+                path = basePath.getParent().resolve(stored).normalize();
+            }
+        }
+        return basePath.relativize(checked(path)).toString().replace('\\', '/');
+    }
+
+    @Override
+    public StoredObject stat(String key) throws IOException {
+        Path path = basePath.resolve(key);
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        if (!attributes.isRegularFile()) {
+            return null;
+        }
+        return new StoredObject(key, attributes.size(), attributes.lastModifiedTime().toMillis(), path.toRealPath());
+    }
+
+    @Override
+    public RangeReader open(StoredObject object) throws IOException {
+        return RangeReader.of(FileChannel.open(basePath.resolve(object.key()), StandardOpenOption.READ));
+    }
+
+    private Path checked(Path path) {
+        if (!path.startsWith(basePath) || path.equals(basePath)) {
+            throw new VideoStreamingException("Path traversal attempt detected");
+        }
+        // Symbolic links must not lead out of the storage directory either
+        if (Files.exists(path)) {
+            try {
+                if (!path.toRealPath().startsWith(basePath.toRealPath())) {
+                    throw new VideoStreamingException("Path traversal attempt detected");
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return path;
+    }
+}
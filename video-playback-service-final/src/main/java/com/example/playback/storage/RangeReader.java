@@ -0,0 +1,76 @@
+package com.example.playback.storage;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Positional reads of one stored object. Like {@link FileChannel#read(ByteBuffer, long)},
+ * a read may return fewer bytes than asked for, so callers loop until they have what they
+ * need. A reader is used by one thread at a time.
+ */
+public interface RangeReader extends AutoCloseable {
+
+    /**
+     * Reads bytes starting at {@code position} into {@code dst}.
+     *
+     * @return the number of bytes read, or {@code -1} when {@code position} is at or past the end
+     */
+    int read(ByteBuffer dst, long position) throws IOException;
+
+    /**
+     * Copies {@code count} bytes starting at {@code position} to {@code target}. Remote
+     * readers override this to fetch the whole span with one request.
+     *
+     * @throws EOFException when the object ends before {@code count} bytes were copied
+     */
+    default long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(count, 256 * 1024));
+        long copied = 0;
+        while (copied < count) {
+            buffer.clear().limit((int) Math.min(count - copied, buffer.capacity()));
+            int read = read(buffer, position + copied);
+            if (read < 0) {
+                throw new EOFException("Object ended after " + copied + " of " + count + " bytes");
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                target.write(buffer);
+            }
+            copied += read;
+        }
+        return copied;
+    }
+
+    @Override
+    void close() throws IOException;
+
+    static RangeReader of(FileChannel channel) {
+        return new RangeReader() {
+            @Override
+            public int read(ByteBuffer dst, long position) throws IOException {
+                return channel.read(dst, position);
+            }
+
+            @Override
+            public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+                long copied = 0;
+                while (copied < count) {
+                    long transferred = channel.transferTo(position + copied, count - copied, target);
+                    if (transferred <= 0) {
+                        throw new EOFException("File ended after " + copied + " of " + count + " bytes");
+                    }
+                    copied += transferred;
+                }
+                return copied;
+            }
+
+            @Override
+            public void close() throws IOException {
+                channel.close();
+            }
+        };
+    }
+}
@@ -0,0 +1,304 @@
+package com.example.playback.storage;
+
+import com.example.playback.exception.VideoStreamingException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Videos in an S3 bucket, or any store speaking the S3 REST API (MinIO, Ceph RGW, ...).
+ * Objects are stat'ed with HEAD and read with ranged GETs over keep-alive connections;
+ * requests are signed with SigV4 when an access key is configured and sent anonymously
+ * otherwise. Keys are the stored paths under {@code prefix}.
+ * <p>
+ * Every read is a round trip, so this is meant to sit behind a {@link DiskChunkCache}.
+ * Unreachable stores, timeouts and error responses are reported as {@link StorageException}.
+ */
+public class S3VideoStorage implements VideoStorage {
+
+    private static final Logger log = LoggerFactory.getLogger(S3VideoStorage.class);
+
+    private static final int TRANSFER_BUFFER_SIZE = 64 * 1024;
+    private static final DateTimeFormatter HTTP_DATE =
+            DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US).withZone(ZoneOffset.UTC);
+
+    private enum Operation {
+        STAT, READ;
+
+        private final String tag = name().toLowerCase(Locale.ROOT);
+    }
+
+    private enum Outcome {
+        SUCCESS, NOT_FOUND, ERROR;
+
+        private final String tag = name().toLowerCase(Locale.ROOT);
+    }
+
+    private final HttpClient httpClient;
+    private final String baseUri;
+    private final String prefix;
+    private final Duration requestTimeout;
+    private final S3RequestSigner signer;
+    private final Map<Operation, Map<Outcome, Timer>> requestTimers = new EnumMap<>(Operation.class);
+    private volatile boolean forbiddenLogged;
+
+    /**
+     * @param pathStyle {@code true} for {@code endpoint/bucket/key} URLs (MinIO and most
+     *                  S3-compatible stores), {@code false} for {@code bucket.endpoint/key}
+     */
+    public S3VideoStorage(URI endpoint, String region, String bucket, String prefix, boolean pathStyle,
+                          String accessKey, String secretKey, Duration connectTimeout, Duration requestTimeout,
+                          MeterRegistry meterRegistry) {
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(connectTimeout)
+                .build();
+        this.baseUri = pathStyle
+                ? endpoint.getScheme() + "://" + endpoint.getRawAuthority() + "/" + bucket + "/"
+                : endpoint.getScheme() + "://" + bucket + "." + endpoint.getRawAuthority() + "/";
+        String trimmed = prefix == null ? "" : prefix.replaceAll("^/+|/+$", "");
+        this.prefix = trimmed.isEmpty() ? "" : trimmed + "/";
+        this.requestTimeout = requestTimeout;
+        this.signer = accessKey == null || accessKey.isBlank() ? null : new S3RequestSigner(region, accessKey, secretKey);
+
+        for (Operation operation : Operation.values()) {
+            Map<Outcome, Timer> timers = new EnumMap<>(Outcome.class);
+            for (Outcome outcome : Outcome.values()) {
+                timers.put(outcome, Timer.builder("video.storage.remote.requests")
+                        .tag("operation", operation.tag)
+                        .tag("outcome", outcome.tag)
+                        .register(meterRegistry));
+            }
+            requestTimers.put(operation, timers);
+        }
+    }
+
+    /**
+     * Object keys have no directories to escape from, but {@code ..} segments are still
+     * rejected so the same rows cannot mean different files on different backends.
+     */
+    @Override
+    public String keyOf(String storedPath) {
+        StringJoiner key = new StringJoiner("/");
+        for (String segment : storedPath.split("/")) {
+            if (segment.equals("..")) {
+                throw new VideoStreamingException("Path traversal attempt detected");
+            }
+            if (!segment.isEmpty() && !segment.equals(".")) {
+                key.add(segment);
+            }
+        }
+        if (key.length() == 0) {
+            throw new VideoStreamingException("Invalid stored video path: " + storedPath);
+        }
+        return key.toString();
+    }
+
+    /**
+     * A 403 counts as missing: without {@code s3:ListBucket} S3 answers 403 rather than 404
+     * for keys that do not exist, and a HEAD response has no body to tell the two apart.
+     */
+    @Override
+    public StoredObject stat(String key) throws IOException {
+        HttpResponse<Void> response = send(Operation.STAT, request("HEAD", key, null, 0),
+                HttpResponse.BodyHandlers.discarding());
+        int status = response.statusCode();
+        if (status == 404) {
+            return null;
+        }
+        if (status == 403) {
+            if (!forbiddenLogged) {
+                forbiddenLogged = true;
+                log.warn("HEAD of {} was denied (403), treating it as missing. If objects exist, check the "
+                        + "credentials and grant s3:GetObject and s3:ListBucket", key);
+            }
+            return null;
+        }
+        if (status != 200) {
+            throw new StorageException("HEAD of " + key + " returned " + status, isRetryable(status), null);
+        }
+        long length = response.headers().firstValueAsLong("Content-Length")
+                .orElseThrow(() -> new StorageException("HEAD of " + key + " returned no Content-Length", false, null));
+        long lastModified = response.headers().firstValue("Last-Modified")
+                .map(S3VideoStorage::parseHttpDate)
+                .orElse(0L);
+        return new StoredObject(key, length, lastModified, null);
+    }
+
+    @Override
+    public RangeReader open(StoredObject object) {
+        return new ObjectReader(object);
+    }
+
+    private final class ObjectReader implements RangeReader {
+
+        private final StoredObject object;
+
+        private ObjectReader(StoredObject object) {
+            this.object = object;
+        }
+
+        @Override
+        public int read(ByteBuffer dst, long position) throws IOException {
+            if (position >= object.length()) {
+                return -1;
+            }
+            int count = (int) Math.min(dst.remaining(), object.length() - position);
+            if (count == 0) {
+                return 0;
+            }
+            try (InputStream body = get(object, position, count)) {
+                byte[] bytes = body.readNBytes(count);
+                dst.put(bytes);
+                return bytes.length > 0 ? bytes.length : -1;
+            }
+        }
+
+        @Override
+        public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+            try (InputStream body = get(object, position, count)) {
+                byte[] buffer = new byte[(int) Math.min(count, TRANSFER_BUFFER_SIZE)];
+                long copied = 0;
+                int read;
+                while (copied < count
+                        && (read = body.read(buffer, 0, (int) Math.min(buffer.length, count - copied))) > 0) {
+                    ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, read);
+                    while (chunk.hasRemaining()) {
+                        target.write(chunk);
+                    }
+                    copied += read;
+                }
+                if (copied < count) {
+                    throw new EOFException("Object " + object.key() + " ended after " + copied + " of " + count
+                            + " bytes at offset " + position);
+                }
+                return copied;
+            }
+        }
+
+        @Override
+        public void close() {
+            // Connections belong to the shared client's pool
+        }
+    }
+
+    /**
+     * Ranged GET of {@code count} bytes. {@code If-Unmodified-Since} makes the read fail
+     * instead of mixing bytes of a replaced object into one already being served.
+     */
+    private InputStream get(StoredObject object, long position, long count) throws IOException {
+        HttpResponse<InputStream> response = send(Operation.READ,
+                request("GET", object.key(), "bytes=" + position + "-" + (position + count - 1), object.lastModified()),
+                HttpResponse.BodyHandlers.ofInputStream());
+        int status = response.statusCode();
+        if (status == 206) {
+            return response.body();
+        }
+        response.body().close();
+        if (status == 404) {
+            throw new NoSuchFileException(object.key());
+        }
+        if (status == 412) {
+            throw new StorageException("Object " + object.key() + " changed while it was being read", true, null);
+        }
+        throw new StorageException("GET of " + object.key() + " at offset " + position + " returned " + status,
+                isRetryable(status), null);
+    }
+
+    private static boolean isRetryable(int status) {
+        return status >= 500 || status == 429;
+    }
+
+    private HttpRequest request(String method, String key, String range, long unmodifiedSince) {
+        URI uri = URI.create(baseUri + encode(prefix + key));
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri)
+                .timeout(requestTimeout)
+                .method(method, HttpRequest.BodyPublishers.noBody());
+        if (range != null) {
+            builder.header("Range", range);
+        }
+        if (unmodifiedSince > 0) {
+            builder.header("If-Unmodified-Since", HTTP_DATE.format(Instant.ofEpochMilli(unmodifiedSince)));
+        }
+        if (signer != null) {
+            signer.sign(builder, method, uri, Instant.now());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Sends the request and records {@code video.storage.remote.requests}; for reads the
+     * time is to the response headers, not the end of the body.
+     */
+    private <T> HttpResponse<T> send(Operation operation, HttpRequest request, HttpResponse.BodyHandler<T> handler)
+            throws IOException {
+        long started = System.nanoTime();
+        Outcome outcome = Outcome.ERROR;
+        try {
+            HttpResponse<T> response = httpClient.send(request, handler);
+            int status = response.statusCode();
+            outcome = status / 100 == 2 ? Outcome.SUCCESS : status == 404 ? Outcome.NOT_FOUND : Outcome.ERROR;
+            return response;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for " + request.method() + " " + request.uri());
+        } catch (IOException e) {
+            // Connection refused or reset, timeouts: the store may well answer the next attempt
+            throw new StorageException(request.method() + " " + request.uri().getPath() + " failed: " + e, true, e);
+        } finally {
+            requestTimers.get(operation).get(outcome).record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Percent-encodes everything but unreserved characters and {@code /}, as SigV4 expects
+     * the canonical path of S3 requests.
+     */
+    private static String encode(String key) {
+        StringBuilder encoded = new StringBuilder(key.length() + 16);
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            char c = (char) (b & 0xff);
+            if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')
+                    || c == '-' || c == '_' || c == '.' || c == '~' || c == '/') {
+                encoded.append(c);
+            } else {
+                encoded.append('%').append(Character.toUpperCase(Character.forDigit((c >> 4) & 0xf, 16)))
+                        .append(Character.toUpperCase(Character.forDigit(c & 0xf, 16)));
+            }
+        }
+        return encoded.toString();
+    }
+
+    private static long parseHttpDate(String value) {
+        try {
+            return ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return 0L;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.playback.storage;
+
+import java.io.IOException;
+
+/**
+ * The storage backend itself failed: it could not be reached, timed out or answered with
+ * an error, as opposed to the object being missing or its contents being unreadable.
+ */
+public class StorageException extends IOException {
+
+    private final boolean retryable;
+
+    /**
+     * @param retryable whether the same request may succeed shortly, e.g. after a timeout or
+     *                  a 5xx; {@code false} for errors such as denied access that need fixing
+     */
+    public StorageException(String message, boolean retryable, Throwable cause) {
+        super(message, cause);
+        this.retryable = retryable;
+    }
+
+    public boolean isRetryable() {
+        return retryable;
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.playback.storage;
+
+import java.nio.file.Path;
+
+/**
+ * A video object as its storage reported it.
+ *
+ * @param key          storage key, relative to the storage root
+ * @param lastModified epoch millis
+ * @param localPath    real path of the object on a local filesystem, or {@code null} when it
+ *                     is only reachable through {@link VideoStorage#open(StoredObject)};
+ *                     only local objects can be handed to the connector's sendfile path
+ */
+public record StoredObject(String key, long length, long lastModified, Path localPath) {
+}
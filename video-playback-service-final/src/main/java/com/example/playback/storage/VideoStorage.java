@@ -0,0 +1,33 @@
+package com.example.playback.storage;
+
+import com.example.playback.exception.VideoStreamingException;
+
+import java.io.IOException;
+
+/**
+ * Where video files live. The streaming path only stats objects and reads byte ranges of
+ * them, so any store with positional reads can serve it. The implementation is chosen
+ * with {@code video.storage.type}.
+ */
+public interface VideoStorage {
+
+    /**
+     * Turns a {@code filePath} from the {@code videos} table into a key of this storage.
+     *
+     * @throws VideoStreamingException if the path is invalid or points outside the storage root
+     */
+    String keyOf(String storedPath);
+
+    /**
+     * Returns the object's size and modification time, or {@code null} when it does not exist.
+     *
+     * @throws StorageException if the backend could not answer
+     */
+    StoredObject stat(String key) throws IOException;
+
+    /**
+     * Opens the object for positional reads. Remote readers connect lazily, so opening
+     * one is cheap; failures surface from the reads.
+     */
+    RangeReader open(StoredObject object) throws IOException;
+}
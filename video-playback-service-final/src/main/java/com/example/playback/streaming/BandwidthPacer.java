@@ -0,0 +1,200 @@
+
+package com.example.playback.streaming;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Per-session token buckets that pace stream responses relative to the title's bitrate.
+ * <p>
+ * Each bucket starts with {@code burst-seconds} of media worth of tokens, so start-up and
+ * seeks run at full speed, and then refills at {@code rate-multiplier} times the bitrate.
+ * Sessions are identified by the {@code sessionId} request parameter or the
+ * {@code X-Playback-Session} header, else by the {@code userId} parameter. Requests carrying
+ * none of them are not paced: behind the gateway their client address is the gateway's, and
+ * keying on it would put every such viewer of a title into one bucket.
+ */
+@Component
+public class BandwidthPacer {
+
+    public static final String SESSION_HEADER = "X-Playback-Session";
+
+    private static final int MAX_PACED_WRITE = 64 * 1024;
+    private static final int MAX_BUCKETS = 100_000;
+
+    private final boolean enabled;
+    private final double burstSeconds;
+    private final double rateMultiplier;
+    private final long defaultBytesPerSecond;
+    private final long idleNanos;
+    private final VideoResolver videoResolver;
+
+    private final ConcurrentHashMap<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    public BandwidthPacer(
+            @Value("${video.pacing.enabled:false}") boolean enabled,
+            @Value("${video.pacing.burst-seconds:10}") double burstSeconds,
+            @Value("${video.pacing.rate-multiplier:1.5}") double rateMultiplier,
+            @Value("${video.pacing.default-bitrate-kbps:5000}") long defaultBitrateKbps,
+            @Value("${video.pacing.idle-timeout:5m}") Duration idleTimeout,
+            VideoResolver videoResolver) {
+        this.enabled = enabled;
+        this.burstSeconds = burstSeconds;
+        this.rateMultiplier = rateMultiplier;
+        this.defaultBytesPerSecond = defaultBitrateKbps * 1000 / 8;
+        this.idleNanos = idleTimeout.toNanos();
+        this.videoResolver = videoResolver;
+    }
+
+    /**
+     * Returns the bucket for the requesting session, or {@code null} when pacing is disabled
+     * or the request does not identify its session.
+     */
+    public TokenBucket bucketFor(VideoFileMetadata metadata, HttpServletRequest request) {
+        String session = enabled ? sessionId(request) : null;
+        if (session == null) {
+            return null;
+        }
+        String key = session + ":" + metadata.videoId();
+        long now = System.nanoTime();
+        if (buckets.size() > MAX_BUCKETS) {
+            buckets.values().removeIf(bucket -> now - bucket.lastUsed > idleNanos);
+        }
+        return buckets.computeIfAbsent(key, k -> {
+            double bytesPerSecond = bytesPerSecond(metadata);
+            return new TokenBucket(bytesPerSecond * burstSeconds, bytesPerSecond * rateMultiplier);
+        });
+    }
+
+    public WritableByteChannel pace(WritableByteChannel target, TokenBucket bucket) {
+        return new PacedChannel(target, bucket);
+    }
+
+    /**
+     * The session or user the request explicitly names, or {@code null} when it names neither.
+     */
+    static String sessionId(HttpServletRequest request) {
+        String session = request.getParameter("sessionId");
+        if (session == null || session.isBlank()) {
+            session = request.getHeader(SESSION_HEADER);
+        }
+        if (session != null && !session.isBlank()) {
+            return session;
+        }
+        String userId = request.getParameter("userId");
+        return userId != null && !userId.isBlank() ? "user:" + userId : null;
+    }
+
+    private double bytesPerSecond(VideoFileMetadata metadata) {
+        Long duration = videoResolver.resolve(metadata.videoId()).duration();
+        if (duration == null || duration <= 0) {
+            return defaultBytesPerSecond;
+        }
+        return Math.max((double) metadata.length() / duration, 1);
+    }
+
+    /**
+     * A token bucket measured in bytes.
+     */
+    public static final class TokenBucket {
+
+        private final double capacity;
+        private final double refillPerNano;
+        private double tokens;
+        private long refilledAt;
+        private volatile long lastUsed;
+
+        TokenBucket(double capacity, double refillPerSecond) {
+            this.capacity = capacity;
+            this.refillPerNano = refillPerSecond / TimeUnit.SECONDS.toNanos(1);
+            this.tokens = capacity;
+            this.refilledAt = System.nanoTime();
+            this.lastUsed = refilledAt;
+        }
+
+        /**
+         * Takes {@code bytes} tokens if they are all available right now.
+         */
+        public synchronized boolean tryConsume(long bytes) {
+            refill();
+            if (tokens < bytes) {
+                return false;
+            }
+            tokens -= bytes;
+            return true;
+        }
+
+        /**
+         * Takes {@code bytes} tokens, parking the calling thread until the bucket has refilled enough.
+         */
+        void consume(long bytes) throws InterruptedIOException {
+            long waitNanos;
+            synchronized (this) {
+                refill();
+                tokens -= bytes;
+                waitNanos = tokens >= 0 ? 0 : (long) (-tokens / refillPerNano);
+            }
+            if (waitNanos > 0) {
+                LockSupport.parkNanos(waitNanos);
+                if (Thread.interrupted()) {
+                    throw new InterruptedIOException("Interrupted while pacing stream");
+                }
+            }
+        }
+
+        private void refill() {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - refilledAt) * refillPerNano);
+            refilledAt = now;
+            lastUsed = now;
+        }
+    }
+
+    private static final class PacedChannel implements WritableByteChannel {
+
+        private final WritableByteChannel target;
+        private final TokenBucket bucket;
+
+        private PacedChannel(WritableByteChannel target, TokenBucket bucket) {
+            this.target = target;
+            this.bucket = bucket;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            int limit = src.limit();
+            int slice = Math.min(src.remaining(), MAX_PACED_WRITE);
+            bucket.consume(slice);
+            src.limit(src.position() + slice);
+            try {
+                int written = 0;
+                while (src.hasRemaining()) {
+                    written += target.write(src);
+                }
+                return written;
+            } finally {
+                src.limit(limit);
+            }
+        }
+
+        @Override
+        public boolean isOpen() {
+            return target.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            target.close();
+        }
+    }
+}
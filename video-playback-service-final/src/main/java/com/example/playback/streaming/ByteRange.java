@@ -0,0 +1,16 @@
+
+package com.example.playback.streaming;
+
+/**
+ * An inclusive, already resolved byte range of a file.
+ */
+public record ByteRange(long start, long end) {
+
+    public long length() {
+        return end - start + 1;
+    }
+
+    public String contentRange(long totalLength) {
+        return "bytes " + start + "-" + end + "/" + totalLength;
+    }
+}
@@ -0,0 +1,135 @@
+
+package com.example.playback.streaming;
+
+import com.example.playback.exception.RangeNotSatisfiableException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Parses RFC 7233 {@code Range} headers against a known representation length.
+ * <p>
+ * Supports {@code bytes=a-b}, open-ended {@code bytes=a-} and suffix {@code bytes=-n}
+ * specs, in any comma separated combination. Overlapping or adjacent ranges are
+ * coalesced. Headers that are syntactically invalid or use another unit are ignored,
+ * as the RFC requires, which is signalled by an empty result.
+ * <p>
+ * Open-ended specs are capped to {@code openEndedLimit} bytes so players pull large
+ * files incrementally instead of holding one connection for the whole file. A limit
+ * of zero or less disables the cap.
+ */
+public final class ByteRangeParser {
+
+    private static final String BYTES_UNIT = "bytes=";
+
+    // Marker for syntactically invalid specs; null means valid but unsatisfiable
+    private static final ByteRange INVALID = new ByteRange(-1, -1);
+
+    private ByteRangeParser() {
+    }
+
+    public static List<ByteRange> parse(String header, long length, long openEndedLimit, int maxRanges) {
+        if (header == null || !header.regionMatches(true, 0, BYTES_UNIT, 0, BYTES_UNIT.length())) {
+            return Collections.emptyList();
+        }
+
+        List<ByteRange> ranges = new ArrayList<>();
+        boolean anySpec = false;
+        for (String spec : header.substring(BYTES_UNIT.length()).split(",")) {
+            spec = spec.trim();
+            if (spec.isEmpty()) {
+                continue;
+            }
+            int dash = spec.indexOf('-');
+            if (dash < 0) {
+                return Collections.emptyList();
+            }
+            anySpec = true;
+
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            ByteRange range;
+            try {
+                range = first.isEmpty() ? suffix(last, length) : bounded(first, last, length, openEndedLimit);
+            } catch (NumberFormatException e) {
+                return Collections.emptyList();
+            }
+            if (range == INVALID) {
+                return Collections.emptyList();
+            }
+            if (range != null) {
+                ranges.add(range);
+            }
+        }
+
+        if (!anySpec) {
+            return Collections.emptyList();
+        }
+        if (ranges.isEmpty()) {
+            throw new RangeNotSatisfiableException(length);
+        }
+
+        List<ByteRange> merged = coalesce(ranges);
+        if (merged.size() > maxRanges) {
+            throw new RangeNotSatisfiableException(length);
+        }
+        return merged;
+    }
+
+    private static ByteRange suffix(String last, long length) {
+        if (last.isEmpty()) {
+            return INVALID;
+        }
+        long suffixLength = Long.parseLong(last);
+        if (suffixLength < 0) {
+            return INVALID;
+        }
+        if (suffixLength == 0 || length == 0) {
+            return null;
+        }
+        return new ByteRange(Math.max(0, length - suffixLength), length - 1);
+    }
+
+    private static ByteRange bounded(String first, String last, long length, long openEndedLimit) {
+        long start = Long.parseLong(first);
+        long end = last.isEmpty() ? openEnd(start, openEndedLimit) : Long.parseLong(last);
+        if (start < 0 || end < start) {
+            return INVALID;
+        }
+        if (start >= length) {
+            return null;
+        }
+        return new ByteRange(start, Math.min(end, length - 1));
+    }
+
+    private static long openEnd(long start, long openEndedLimit) {
+        if (openEndedLimit <= 0 || start > Long.MAX_VALUE - openEndedLimit) {
+            return Long.MAX_VALUE;
+        }
+        return start + openEndedLimit - 1;
+    }
+
+    private static List<ByteRange> coalesce(List<ByteRange> ranges) {
+        if (ranges.size() == 1) {
+            return ranges;
+        }
+        List<ByteRange> sorted = new ArrayList<>(ranges);
+        sorted.sort(Comparator.comparingLong(ByteRange::start));
+
+        List<ByteRange> merged = new ArrayList<>();
+        ByteRange current = sorted.get(0);
+        for (int i = 1; i < sorted.size(); i++) {
+            ByteRange next = sorted.get(i);
+            if (next.start() <= current.end() + 1) {
+                current = new ByteRange(current.start(), Math.max(current.end(), next.end()));
+            } else {
+                merged.add(current);
+                current = next;
+            }
+        }
+        merged.add(current);
+        return merged;
+    }
+}
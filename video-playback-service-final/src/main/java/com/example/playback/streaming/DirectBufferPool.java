@@ -0,0 +1,153 @@
+package com.example.playback.streaming;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reusable direct buffers for file-to-socket copies, so streaming does not allocate a
+ * fresh buffer per range. Buffers come in a few size classes; each class keeps up to its
+ * share of {@code video.buffers.max-pooled-size} idle buffers and anything beyond that is
+ * left to the garbage collector.
+ * <p>
+ * Buffers are lent out as {@link Lease}s that must be closed. A lease that becomes
+ * unreachable without being closed is reported as a leak; its buffer is not reused.
+ */
+@Component
+public class DirectBufferPool {
+
+    private static final Logger log = LoggerFactory.getLogger(DirectBufferPool.class);
+
+    private static final int[] SIZE_CLASSES = {16 * 1024, 64 * 1024, 256 * 1024};
+
+    private final ArrayBlockingQueue<ByteBuffer>[] free;
+    private final Cleaner cleaner = Cleaner.create();
+
+    private final AtomicLong inUseBytes = new AtomicLong();
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder allocations = new LongAdder();
+    private final LongAdder leaks = new LongAdder();
+
+    /**
+     * A borrowed buffer; closing it returns the buffer to the pool. Closing twice is harmless,
+     * using the buffer after closing is not.
+     */
+    public final class Lease implements AutoCloseable {
+
+        private final ByteBuffer buffer;
+        private final int sizeClass;
+        private final LeakGuard guard;
+        private final Cleaner.Cleanable cleanable;
+
+        private Lease(ByteBuffer buffer, int sizeClass) {
+            this.buffer = buffer;
+            this.sizeClass = sizeClass;
+            this.guard = new LeakGuard(DirectBufferPool.this, buffer.capacity());
+            this.cleanable = cleaner.register(this, guard);
+        }
+
+        public ByteBuffer buffer() {
+            return buffer;
+        }
+
+        @Override
+        public void close() {
+            if (guard.released.compareAndSet(false, true)) {
+                cleanable.clean();
+                release(buffer, sizeClass);
+            }
+        }
+    }
+
+    /**
+     * Runs when a lease is closed or garbage collected; only the latter is a leak. Must not
+     * reference the lease or its buffer, or neither could ever be collected.
+     */
+    private static final class LeakGuard implements Runnable {
+
+        private final DirectBufferPool pool;
+        private final int capacity;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private LeakGuard(DirectBufferPool pool, int capacity) {
+            this.pool = pool;
+            this.capacity = capacity;
+        }
+
+        @Override
+        public void run() {
+            if (released.compareAndSet(false, true)) {
+                pool.inUseBytes.addAndGet(-capacity);
+                pool.leaks.increment();
+                log.warn("A {} byte streaming buffer was not returned to the pool before being garbage collected",
+                        capacity);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public DirectBufferPool(
+            @Value("${video.buffers.max-pooled-size:32MB}") DataSize maxPooledSize,
+            MeterRegistry meterRegistry) {
+        this.free = new ArrayBlockingQueue[SIZE_CLASSES.length];
+        long perClass = maxPooledSize.toBytes() / SIZE_CLASSES.length;
+        for (int i = 0; i < SIZE_CLASSES.length; i++) {
+            free[i] = new ArrayBlockingQueue<>((int) Math.max(1, perClass / SIZE_CLASSES[i]));
+        }
+
+        Gauge.builder("video.buffers.in.use", inUseBytes, AtomicLong::get)
+                .baseUnit("bytes").register(meterRegistry);
+        Gauge.builder("video.buffers.pooled", this, DirectBufferPool::getPooledBytes)
+                .baseUnit("bytes").register(meterRegistry);
+        FunctionCounter.builder("video.buffers.acquisitions", acquisitions, LongAdder::sum).register(meterRegistry);
+        FunctionCounter.builder("video.buffers.allocations", allocations, LongAdder::sum).register(meterRegistry);
+        FunctionCounter.builder("video.buffers.leaks", leaks, LongAdder::sum).register(meterRegistry);
+    }
+
+    /**
+     * Borrows a cleared buffer of the smallest class holding {@code size} bytes, or of the
+     * largest class when none does; callers copy in chunks of the buffer's capacity.
+     */
+    public Lease acquire(int size) {
+        int sizeClass = SIZE_CLASSES.length - 1;
+        for (int i = 0; i < SIZE_CLASSES.length; i++) {
+            if (size <= SIZE_CLASSES[i]) {
+                sizeClass = i;
+                break;
+            }
+        }
+        ByteBuffer buffer = free[sizeClass].poll();
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(SIZE_CLASSES[sizeClass]);
+            allocations.increment();
+        }
+        acquisitions.increment();
+        inUseBytes.addAndGet(buffer.capacity());
+        return new Lease(buffer, sizeClass);
+    }
+
+    public long getPooledBytes() {
+        long bytes = 0;
+        for (int i = 0; i < SIZE_CLASSES.length; i++) {
+            bytes += (long) free[i].size() * SIZE_CLASSES[i];
+        }
+        return bytes;
+    }
+
+    private void release(ByteBuffer buffer, int sizeClass) {
+        inUseBytes.addAndGet(-buffer.capacity());
+        free[sizeClass].offer(buffer.clear());
+    }
+}
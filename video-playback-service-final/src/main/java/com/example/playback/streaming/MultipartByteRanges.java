@@ -0,0 +1,71 @@
+
+package com.example.playback.streaming;
+
+import com.example.playback.storage.RangeReader;
+import org.springframework.util.MimeTypeUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@code multipart/byteranges} body for several ranges of one file. Part headers are
+ * rendered up front so the exact Content-Length is known before anything is written.
+ */
+public class MultipartByteRanges {
+
+    private static final byte[] CRLF = "\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final List<ByteRange> ranges;
+    private final List<byte[]> partHeaders;
+    private final byte[] closingBoundary;
+    private final String boundary;
+    private final long contentLength;
+
+    public MultipartByteRanges(List<ByteRange> ranges, long totalLength, String partContentType) {
+        this.ranges = ranges;
+        this.boundary = new String(MimeTypeUtils.generateMultipartBoundary(), StandardCharsets.US_ASCII);
+        this.partHeaders = new ArrayList<>(ranges.size());
+
+        long length = 0;
+        for (int i = 0; i < ranges.size(); i++) {
+            ByteRange range = ranges.get(i);
+            String header = (i == 0 ? "" : "\r\n") + "--" + boundary + "\r\n"
+                    + "Content-Type: " + partContentType + "\r\n"
+                    + "Content-Range: " + range.contentRange(totalLength) + "\r\n\r\n";
+            byte[] bytes = header.getBytes(StandardCharsets.US_ASCII);
+            partHeaders.add(bytes);
+            length += bytes.length + range.length();
+        }
+        this.closingBoundary = ("\r\n--" + boundary + "--").getBytes(StandardCharsets.US_ASCII);
+        this.contentLength = length + closingBoundary.length + CRLF.length;
+    }
+
+    public String getBoundary() {
+        return boundary;
+    }
+
+    public long getContentLength() {
+        return contentLength;
+    }
+
+    public void writeTo(String videoId, RangeReader reader, long fileLength, RangeTransfer transfer,
+                        WritableByteChannel target) throws IOException {
+        for (int i = 0; i < ranges.size(); i++) {
+            write(partHeaders.get(i), target);
+            transfer.transfer(videoId, reader, fileLength, ranges.get(i), target);
+        }
+        write(closingBoundary, target);
+        write(CRLF, target);
+    }
+
+    private static void write(byte[] bytes, WritableByteChannel target) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            target.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+
+package com.example.playback.streaming;
+
+import com.example.playback.storage.RangeReader;
+import com.example.playback.util.Bulkhead;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Copies byte ranges of a video file to a response body. Segments held by the
+ * {@link SegmentCache} are written from memory, everything else with positional
+ * storage reads under the disk bulkhead into pooled direct buffers.
+ */
+@Component
+public class RangeTransfer {
+
+    private static final int COPY_BUFFER_SIZE = 256 * 1024;
+
+    private final SegmentCache segmentCache;
+    private final Bulkhead diskBulkhead;
+    private final DirectBufferPool bufferPool;
+
+    public RangeTransfer(SegmentCache segmentCache, @Qualifier("diskBulkhead") Bulkhead diskBulkhead,
+                         DirectBufferPool bufferPool) {
+        this.segmentCache = segmentCache;
+        this.diskBulkhead = diskBulkhead;
+        this.bufferPool = bufferPool;
+    }
+
+    public void transfer(String videoId, RangeReader reader, long fileLength, ByteRange range,
+                         WritableByteChannel target) throws IOException {
+        if (!segmentCache.isEnabled()) {
+            copy(reader, range.start(), range.length(), target);
+            return;
+        }
+
+        int segmentSize = segmentCache.getSegmentSize();
+        long position = range.start();
+        while (position <= range.end()) {
+            long index = position / segmentSize;
+            long segmentStart = index * segmentSize;
+            long pieceEnd = Math.min(range.end(), segmentStart + segmentSize - 1);
+
+            ByteBuffer segment = segmentCache.get(videoId, index, reader, fileLength);
+            if (segment != null) {
+                segment.limit((int) (pieceEnd - segmentStart + 1)).position((int) (position - segmentStart));
+                while (segment.hasRemaining()) {
+                    target.write(segment);
+                }
+            } else {
+                copy(reader, position, pieceEnd - position + 1, target);
+            }
+            position = pieceEnd + 1;
+        }
+    }
+
+    /**
+     * Copies with positional reads into a pooled direct buffer, which a file channel fills
+     * without an intermediate copy. The disk permit is held for the read only, never while a
+     * slow client drains the socket.
+     */
+    private void copy(RangeReader reader, long position, long count, WritableByteChannel target) throws IOException {
+        try (DirectBufferPool.Lease lease = bufferPool.acquire((int) Math.min(count, COPY_BUFFER_SIZE))) {
+            ByteBuffer buffer = lease.buffer();
+            long remaining = count;
+            while (remaining > 0) {
+                long offset = position;
+                buffer.clear().limit((int) Math.min(remaining, buffer.capacity()));
+                int read = diskBulkhead.call(() -> reader.read(buffer, offset));
+                if (read <= 0) {
+                    throw new EOFException("Video file truncated while streaming at offset " + position);
+                }
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    target.write(buffer);
+                }
+                position += read;
+                remaining -= read;
+            }
+        }
+    }
+}
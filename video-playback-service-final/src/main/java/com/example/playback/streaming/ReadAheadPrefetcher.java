@@ -0,0 +1,173 @@
+package com.example.playback.streaming;
+
+import com.example.playback.storage.RangeReader;
+import com.example.playback.storage.VideoStorage;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reads ahead of players that fetch a video as consecutive ranges. Once a stream's second
+ * request continues where the previous one ended, the segments following it are loaded
+ * into the {@link SegmentCache} in the background, so the next request is served from
+ * memory instead of starting with a cold read.
+ * <p>
+ * How far ahead follows the client: each stream's consumption rate is estimated from the
+ * bytes and time between its requests, and read-ahead covers {@code horizon} worth of it,
+ * between {@code min-depth} and {@code max-depth} segments.
+ * <p>
+ * Streams are told apart by the session or user the request names (see
+ * {@link BandwidthPacer}); requests naming neither get no read-ahead, since requests of
+ * different viewers would otherwise be mistaken for one stream.
+ */
+@Component
+public class ReadAheadPrefetcher {
+
+    private static final Logger log = LoggerFactory.getLogger(ReadAheadPrefetcher.class);
+
+    private static final int MAX_STREAMS = 100_000;
+    private static final double RATE_SMOOTHING = 0.3;
+
+    private final SegmentCache segmentCache;
+    private final VideoStorage storage;
+    private final boolean enabled;
+    private final double horizonSeconds;
+    private final int minDepth;
+    private final int maxDepth;
+    private final long idleNanos;
+    private final ThreadPoolExecutor executor;
+
+    private final ConcurrentHashMap<String, Stream> streams = new ConcurrentHashMap<>();
+    private final Set<SegmentCache.SegmentKey> inFlight = ConcurrentHashMap.newKeySet();
+    private final LongAdder scheduled = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    /**
+     * Position and consumption rate of one viewer's stream; guarded by its map entry.
+     */
+    private static final class Stream {
+        long nextOffset;
+        long lastLength;
+        long lastRequestNanos;
+        double bytesPerSecond;
+        boolean sequential;
+    }
+
+    public ReadAheadPrefetcher(
+            SegmentCache segmentCache,
+            VideoStorage storage,
+            @Value("${video.readahead.enabled:true}") boolean enabled,
+            @Value("${video.readahead.horizon:5s}") Duration horizon,
+            @Value("${video.readahead.min-depth:1}") int minDepth,
+            @Value("${video.readahead.max-depth:8}") int maxDepth,
+            @Value("${video.readahead.threads:4}") int threads,
+            @Value("${video.readahead.idle-timeout:2m}") Duration idleTimeout,
+            MeterRegistry meterRegistry) {
+        this.segmentCache = segmentCache;
+        this.storage = storage;
+        this.enabled = enabled && segmentCache.isEnabled();
+        this.horizonSeconds = horizon.toNanos() / 1e9;
+        this.minDepth = minDepth;
+        this.maxDepth = Math.max(minDepth, maxDepth);
+        this.idleNanos = idleTimeout.toNanos();
+
+        // Own small pool: read-ahead is best effort and must never queue behind (or delay) demand reads
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("readahead-");
+        threadFactory.setDaemon(true);
+        this.executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(threads * 64), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+
+        FunctionCounter.builder("video.readahead.scheduled", scheduled, LongAdder::sum).register(meterRegistry);
+        FunctionCounter.builder("video.readahead.dropped", dropped, LongAdder::sum).register(meterRegistry);
+        Gauge.builder("video.readahead.streams", streams, ConcurrentHashMap::size).register(meterRegistry);
+    }
+
+    /**
+     * Notes a range request about to be served and schedules read-ahead past its end when
+     * the stream is reading sequentially.
+     */
+    public void onRange(VideoFileMetadata metadata, ByteRange range, HttpServletRequest request) {
+        String session = enabled && request != null ? BandwidthPacer.sessionId(request) : null;
+        if (session == null || range.end() + 1 >= metadata.length()) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (streams.size() > MAX_STREAMS) {
+            streams.values().removeIf(stream -> now - stream.lastRequestNanos > idleNanos);
+        }
+
+        int segmentSize = segmentCache.getSegmentSize();
+        Stream stream = streams.compute(session + ":" + metadata.videoId(), (key, current) -> {
+            Stream next = current != null ? current : new Stream();
+            // Players may overlap or skip a little between requests; within a segment still counts
+            next.sequential = current != null && Math.abs(range.start() - current.nextOffset) <= segmentSize;
+            if (next.sequential) {
+                double elapsed = Math.max(now - current.lastRequestNanos, 1_000_000) / 1e9;
+                double sample = current.lastLength / elapsed;
+                next.bytesPerSecond = next.bytesPerSecond == 0
+                        ? sample
+                        : next.bytesPerSecond + RATE_SMOOTHING * (sample - next.bytesPerSecond);
+            }
+            next.nextOffset = range.end() + 1;
+            next.lastLength = range.length();
+            next.lastRequestNanos = now;
+            return next;
+        });
+        if (!stream.sequential) {
+            return;
+        }
+
+        int depth = (int) Math.ceil(stream.bytesPerSecond * horizonSeconds / segmentSize);
+        depth = Math.max(minDepth, Math.min(maxDepth, depth));
+        long first = range.end() / segmentSize + 1;
+        long lastSegment = (metadata.length() - 1) / segmentSize;
+        for (long index = first; index < first + depth && index <= lastSegment; index++) {
+            schedule(metadata, index);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void schedule(VideoFileMetadata metadata, long index) {
+        SegmentCache.SegmentKey key = new SegmentCache.SegmentKey(metadata.videoId(), index);
+        if (segmentCache.contains(key.videoId(), index) || !inFlight.add(key)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try (RangeReader reader = storage.open(metadata.object())) {
+                    segmentCache.prefetch(metadata.videoId(), index, reader, metadata.length());
+                } catch (IOException | RuntimeException e) {
+                    log.debug("Read-ahead of segment {} of {} failed: {}", index, metadata.videoId(), e.getMessage());
+                } finally {
+                    inFlight.remove(key);
+                }
+            });
+            scheduled.increment();
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(key);
+            dropped.increment();
+        }
+    }
+}
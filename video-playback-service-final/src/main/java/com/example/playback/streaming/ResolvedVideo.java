@@ -0,0 +1,17 @@
+package com.example.playback.streaming;
+
+import org.springframework.http.MediaType;
+
+/**
+ * A video id resolved against the {@code videos} table: the storage key to serve, already
+ * checked to lie inside the storage root, and how to label it.
+ *
+ * @param videoId     id of the variant being served; differs from the requested id when a
+ *                    quality variant was selected
+ * @param titleId     the title the variant belongs to
+ * @param key         key of the file in the {@link com.example.playback.storage.VideoStorage}
+ * @param duration    seconds, or {@code null} when unknown
+ */
+public record ResolvedVideo(String videoId, String titleId, String quality, String key,
+                            MediaType contentType, Long duration) {
+}
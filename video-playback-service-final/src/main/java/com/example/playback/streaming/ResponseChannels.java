@@ -0,0 +1,53 @@
+
+package com.example.playback.streaming;
+
+import jakarta.servlet.ServletOutputStream;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Adapts response bodies to channels. Servlet output streams accept {@link ByteBuffer}s
+ * directly, which lets direct buffers reach the connector without an intermediate heap copy.
+ */
+public final class ResponseChannels {
+
+    private ResponseChannels() {
+    }
+
+    public static WritableByteChannel of(OutputStream out) {
+        if (out instanceof ServletOutputStream servletOut) {
+            return new ServletOutputChannel(servletOut);
+        }
+        return Channels.newChannel(out);
+    }
+
+    private static final class ServletOutputChannel implements WritableByteChannel {
+
+        private final ServletOutputStream out;
+
+        private ServletOutputChannel(ServletOutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            int written = src.remaining();
+            out.write(src);
+            return written;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+            // The container owns the response stream
+        }
+    }
+}
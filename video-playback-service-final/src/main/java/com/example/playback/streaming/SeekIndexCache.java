@@ -0,0 +1,102 @@
+
+package com.example.playback.streaming;
+
+import com.example.playback.media.Mp4Parser;
+import com.example.playback.media.SeekIndex;
+import com.example.playback.storage.RangeReader;
+import com.example.playback.storage.VideoStorage;
+import com.example.playback.util.Bulkhead;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-video keyframe index, built lazily from the MP4 sample tables on the first seek and
+ * held through soft references so the GC can drop indexes of idle titles under memory
+ * pressure. A changed file (new ETag) rebuilds the index.
+ */
+@Component
+public class SeekIndexCache {
+
+    private static final Logger log = LoggerFactory.getLogger(SeekIndexCache.class);
+
+    private record Entry(String etag, SeekIndex index) {
+    }
+
+    private static final class EntryReference extends SoftReference<Entry> {
+        final String videoId;
+
+        EntryReference(String videoId, Entry entry, ReferenceQueue<Entry> queue) {
+            super(entry, queue);
+            this.videoId = videoId;
+        }
+    }
+
+    private final ConcurrentHashMap<String, EntryReference> entries = new ConcurrentHashMap<>();
+    private final ReferenceQueue<Entry> cleared = new ReferenceQueue<>();
+    private final VideoStorage storage;
+    private final Bulkhead diskBulkhead;
+
+    public SeekIndexCache(VideoStorage storage, @Qualifier("diskBulkhead") Bulkhead diskBulkhead) {
+        this.storage = storage;
+        this.diskBulkhead = diskBulkhead;
+    }
+
+    public SeekIndex get(VideoFileMetadata metadata) throws IOException {
+        expungeCleared();
+        Entry entry = current(entries.get(metadata.videoId()), metadata);
+        if (entry != null) {
+            return entry.index();
+        }
+        // Keep the entry strongly reachable until it has been returned
+        Entry[] result = new Entry[1];
+        try {
+            entries.compute(metadata.videoId(), (videoId, reference) -> {
+                result[0] = current(reference, metadata);
+                if (result[0] != null) {
+                    return reference;
+                }
+                result[0] = new Entry(metadata.etag(), build(metadata));
+                return new EntryReference(videoId, result[0], cleared);
+            });
+            return result[0].index();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    public void invalidate(String videoId) {
+        entries.remove(videoId);
+    }
+
+    private static Entry current(EntryReference reference, VideoFileMetadata metadata) {
+        Entry entry = reference != null ? reference.get() : null;
+        return entry != null && entry.etag().equals(metadata.etag()) ? entry : null;
+    }
+
+    private SeekIndex build(VideoFileMetadata metadata) {
+        long started = System.nanoTime();
+        try (RangeReader reader = storage.open(metadata.object())) {
+            SeekIndex index = diskBulkhead.call(() -> Mp4Parser.parse(reader, metadata.length())).seekIndex();
+            log.debug("Built seek index for {}: {} keyframes, ~{} bytes in {} ms", metadata.videoId(),
+                    index.size(), index.sizeInBytes(), (System.nanoTime() - started) / 1_000_000);
+            return index;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void expungeCleared() {
+        EntryReference reference;
+        while ((reference = (EntryReference) cleared.poll()) != null) {
+            entries.remove(reference.videoId, reference);
+        }
+    }
+}
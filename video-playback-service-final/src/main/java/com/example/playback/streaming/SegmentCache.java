@@ -0,0 +1,300 @@
+
+package com.example.playback.streaming;
+
+import com.example.playback.storage.RangeReader;
+import com.example.playback.util.Bulkhead;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Off-heap cache of fixed-size video segments, keyed by (videoId, segment index).
+ * <p>
+ * Segments live in direct buffers and are evicted in LRU order once the byte budget is
+ * exceeded. Admission is frequency based so one-off reads of long-tail titles do not
+ * flush the hot set: the leading segments of every video are always admitted, any other
+ * segment only after it has been requested {@code admission-threshold} times recently.
+ * Segments loaded by read-ahead skip admission; at most {@code video.readahead.max-size}
+ * bytes of them may be waiting to be read at any time.
+ */
+@Component
+public class SegmentCache {
+
+    private static final Logger log = LoggerFactory.getLogger(SegmentCache.class);
+
+    public record SegmentKey(String videoId, long index) {
+    }
+
+    private final boolean enabled;
+    private final long maxBytes;
+    private final int segmentSize;
+    private final int leadingSegments;
+    private final int admissionThreshold;
+    private final long maxReadAheadBytes;
+    private final Bulkhead diskBulkhead;
+
+    private final LinkedHashMap<SegmentKey, ByteBuffer> segments = new LinkedHashMap<>(256, 0.75f, true);
+    private final FrequencySketch sketch = new FrequencySketch(1 << 16);
+    private long usedBytes;
+    // Read-ahead segments not yet served; guarded by this
+    private final Set<SegmentKey> unread = new HashSet<>();
+    private long readAheadBytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder readAheadHits = new LongAdder();
+    private final LongAdder readAheadWasted = new LongAdder();
+
+    public SegmentCache(
+            @Value("${video.cache.enabled:true}") boolean enabled,
+            @Value("${video.cache.max-size:256MB}") DataSize maxSize,
+            @Value("${video.cache.segment-size:1MB}") DataSize segmentSize,
+            @Value("${video.cache.leading-segments:2}") int leadingSegments,
+            @Value("${video.cache.admission-threshold:3}") int admissionThreshold,
+            @Value("${video.readahead.max-size:64MB}") DataSize maxReadAhead,
+            @Qualifier("diskBulkhead") Bulkhead diskBulkhead,
+            MeterRegistry meterRegistry) {
+        this.diskBulkhead = diskBulkhead;
+        this.enabled = enabled && maxSize.toBytes() > 0;
+        this.maxBytes = maxSize.toBytes();
+        this.segmentSize = (int) Math.min(segmentSize.toBytes(), Integer.MAX_VALUE);
+        this.leadingSegments = leadingSegments;
+        this.admissionThreshold = admissionThreshold;
+        this.maxReadAheadBytes = maxReadAhead.toBytes();
+
+        FunctionCounter.builder("video.segment.cache.requests", hits, LongAdder::sum)
+                .tag("result", "hit").register(meterRegistry);
+        FunctionCounter.builder("video.segment.cache.requests", misses, LongAdder::sum)
+                .tag("result", "miss").register(meterRegistry);
+        FunctionCounter.builder("video.segment.cache.evictions", evictions, LongAdder::sum)
+                .register(meterRegistry);
+        Gauge.builder("video.segment.cache.size", this, SegmentCache::getUsedBytes)
+                .baseUnit("bytes").register(meterRegistry);
+        Gauge.builder("video.segment.cache.hit.ratio", this, SegmentCache::getHitRatio)
+                .register(meterRegistry);
+        FunctionCounter.builder("video.readahead.segments", readAheadHits, LongAdder::sum)
+                .tag("result", "used").register(meterRegistry);
+        FunctionCounter.builder("video.readahead.segments", readAheadWasted, LongAdder::sum)
+                .tag("result", "evicted").register(meterRegistry);
+        Gauge.builder("video.readahead.pending.size", this, SegmentCache::getReadAheadBytes)
+                .baseUnit("bytes").register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getSegmentSize() {
+        return segmentSize;
+    }
+
+    /**
+     * Records a request for the segments covered by {@code range} and tells whether it
+     * should be served through the cache rather than straight from disk.
+     */
+    public boolean shouldServe(String videoId, ByteRange range) {
+        if (!enabled) {
+            return false;
+        }
+        long first = range.start() / segmentSize;
+        long last = range.end() / segmentSize;
+        for (long index = first; index <= last; index++) {
+            sketch.increment(new SegmentKey(videoId, index));
+        }
+        SegmentKey firstKey = new SegmentKey(videoId, first);
+        return isResident(firstKey) || isAdmissible(firstKey);
+    }
+
+    /**
+     * Returns a read-only view of the segment, loading it from {@code reader} when it is
+     * admissible, or {@code null} when the caller should read the bytes from storage itself.
+     */
+    public ByteBuffer get(String videoId, long index, RangeReader reader, long fileLength) throws IOException {
+        SegmentKey key = new SegmentKey(videoId, index);
+        ByteBuffer segment;
+        synchronized (this) {
+            segment = segments.get(key);
+            if (segment != null && unread.remove(key)) {
+                readAheadBytes -= segment.capacity();
+                readAheadHits.increment();
+            }
+        }
+        if (segment != null) {
+            hits.increment();
+            return segment.asReadOnlyBuffer();
+        }
+        misses.increment();
+
+        if (!isAdmissible(key)) {
+            return null;
+        }
+        segment = diskBulkhead.call(() -> load(reader, index, fileLength));
+        return put(key, segment).asReadOnlyBuffer();
+    }
+
+    /**
+     * Whether the segment is in memory, without counting it as a request.
+     */
+    public synchronized boolean contains(String videoId, long index) {
+        return segments.containsKey(new SegmentKey(videoId, index));
+    }
+
+    /**
+     * Loads a segment ahead of demand, bypassing admission. Returns {@code false} without
+     * reading when it is already cached or the read-ahead budget is used up.
+     */
+    public boolean prefetch(String videoId, long index, RangeReader reader, long fileLength) throws IOException {
+        SegmentKey key = new SegmentKey(videoId, index);
+        synchronized (this) {
+            if (!enabled || segments.containsKey(key) || readAheadBytes + segmentSize > maxReadAheadBytes) {
+                return false;
+            }
+        }
+        ByteBuffer segment = diskBulkhead.call(() -> load(reader, index, fileLength));
+        synchronized (this) {
+            if (put(key, segment) == segment && unread.add(key)) {
+                readAheadBytes += segment.capacity();
+            }
+        }
+        return true;
+    }
+
+    public synchronized void invalidate(String videoId) {
+        Iterator<Map.Entry<SegmentKey, ByteBuffer>> it = segments.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<SegmentKey, ByteBuffer> entry = it.next();
+            if (entry.getKey().videoId().equals(videoId)) {
+                usedBytes -= entry.getValue().capacity();
+                if (unread.remove(entry.getKey())) {
+                    readAheadBytes -= entry.getValue().capacity();
+                }
+                it.remove();
+            }
+        }
+    }
+
+    public synchronized long getReadAheadBytes() {
+        return readAheadBytes;
+    }
+
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    public double getHitRatio() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0.0 : (double) hitCount / total;
+    }
+
+    private synchronized boolean isResident(SegmentKey key) {
+        return segments.containsKey(key);
+    }
+
+    private boolean isAdmissible(SegmentKey key) {
+        return key.index() < leadingSegments || sketch.frequency(key) >= admissionThreshold;
+    }
+
+    private ByteBuffer load(RangeReader reader, long index, long fileLength) throws IOException {
+        long start = index * segmentSize;
+        int length = (int) Math.min(segmentSize, fileLength - start);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(length);
+        while (buffer.hasRemaining()) {
+            if (reader.read(buffer, start + buffer.position()) < 0) {
+                throw new EOFException("Video file truncated while caching segment " + index);
+            }
+        }
+        return buffer.flip();
+    }
+
+    private synchronized ByteBuffer put(SegmentKey key, ByteBuffer segment) {
+        ByteBuffer existing = segments.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        segments.put(key, segment);
+        usedBytes += segment.capacity();
+
+        Iterator<Map.Entry<SegmentKey, ByteBuffer>> it = segments.entrySet().iterator();
+        while (usedBytes > maxBytes && it.hasNext()) {
+            Map.Entry<SegmentKey, ByteBuffer> eldest = it.next();
+            if (eldest.getKey().equals(key)) {
+                continue;
+            }
+            usedBytes -= eldest.getValue().capacity();
+            if (unread.remove(eldest.getKey())) {
+                readAheadBytes -= eldest.getValue().capacity();
+                readAheadWasted.increment();
+            }
+            it.remove();
+            evictions.increment();
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Cached segment {} of {} ({} bytes in use)", key.index(), key.videoId(), usedBytes);
+        }
+        return segment;
+    }
+
+    /**
+     * Approximate, self-aging access counter (a small count-min sketch). Counters are
+     * halved periodically so popularity reflects recent traffic only.
+     */
+    private static final class FrequencySketch {
+
+        private final int[] table;
+        private final int mask;
+        private final int resetThreshold;
+        private int additions;
+
+        private FrequencySketch(int size) {
+            this.table = new int[size];
+            this.mask = size - 1;
+            this.resetThreshold = size * 10;
+        }
+
+        synchronized void increment(Object key) {
+            int hash = spread(key.hashCode());
+            table[hash & mask]++;
+            table[rehash(hash) & mask]++;
+            if (++additions >= resetThreshold) {
+                for (int i = 0; i < table.length; i++) {
+                    table[i] >>>= 1;
+                }
+                additions = 0;
+            }
+        }
+
+        synchronized int frequency(Object key) {
+            int hash = spread(key.hashCode());
+            return Math.min(table[hash & mask], table[rehash(hash) & mask]);
+        }
+
+        private static int spread(int hash) {
+            hash ^= hash >>> 16;
+            hash *= 0x45d9f3b;
+            return hash ^ (hash >>> 16);
+        }
+
+        private static int rehash(int hash) {
+            hash *= 0x31848bab;
+            return hash ^ (hash >>> 14);
+        }
+    }
+}
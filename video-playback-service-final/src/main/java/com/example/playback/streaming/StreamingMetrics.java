@@ -0,0 +1,136 @@
+package com.example.playback.streaming;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stream response meters. All tags have a fixed set of values, never video or session ids:
+ * <ul>
+ *   <li>{@code video.stream.ttfb}: from the start of {@code streamVideo} to the first body
+ *       byte written, per {@code delivery}. Sendfile responses are handed to the connector,
+ *       which sends them once headers are committed, so they are recorded at hand-off.</li>
+ *   <li>{@code video.stream.bytes}: body bytes served, per {@code delivery}.</li>
+ *   <li>{@code video.stream.range.size}: size of each range served (a whole file for 200s).</li>
+ *   <li>{@code video.stream.responses}: responses by {@code status} (200, 206, 416).</li>
+ * </ul>
+ */
+@Component
+public class StreamingMetrics {
+
+    /**
+     * How a response body reaches the socket.
+     */
+    public enum Delivery {
+        SENDFILE, DIRECT, PACED;
+
+        private final String tag = name().toLowerCase(Locale.ROOT);
+    }
+
+    private final Map<Delivery, Timer> ttfb = new EnumMap<>(Delivery.class);
+    private final Map<Delivery, Counter> bytes = new EnumMap<>(Delivery.class);
+    private final DistributionSummary rangeSize;
+    private final Counter ok;
+    private final Counter partial;
+    private final Counter notSatisfiable;
+
+    public StreamingMetrics(MeterRegistry meterRegistry) {
+        for (Delivery delivery : Delivery.values()) {
+            ttfb.put(delivery, Timer.builder("video.stream.ttfb")
+                    .tag("delivery", delivery.tag)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofMillis(1))
+                    .maximumExpectedValue(Duration.ofSeconds(30))
+                    .register(meterRegistry));
+            bytes.put(delivery, Counter.builder("video.stream.bytes")
+                    .tag("delivery", delivery.tag)
+                    .baseUnit("bytes")
+                    .register(meterRegistry));
+        }
+        this.rangeSize = DistributionSummary.builder("video.stream.range.size")
+                .baseUnit("bytes")
+                .publishPercentileHistogram()
+                .minimumExpectedValue(1024.0)
+                .maximumExpectedValue(1024.0 * 1024 * 1024)
+                .register(meterRegistry);
+        this.ok = response(meterRegistry, "200");
+        this.partial = response(meterRegistry, "206");
+        this.notSatisfiable = response(meterRegistry, "416");
+    }
+
+    public void onResponse(boolean partialContent, long... rangeLengths) {
+        (partialContent ? partial : ok).increment();
+        for (long length : rangeLengths) {
+            rangeSize.record(length);
+        }
+    }
+
+    public void onRangeNotSatisfiable() {
+        notSatisfiable.increment();
+    }
+
+    public void onSendfile(long startedNanos, long length) {
+        ttfb.get(Delivery.SENDFILE).record(System.nanoTime() - startedNanos, TimeUnit.NANOSECONDS);
+        bytes.get(Delivery.SENDFILE).increment(length);
+    }
+
+    /**
+     * Wraps the response channel to record time to first byte on the first write and count
+     * the bytes written.
+     */
+    public WritableByteChannel meter(WritableByteChannel channel, long startedNanos, Delivery delivery) {
+        return new MeteredChannel(channel, startedNanos, ttfb.get(delivery), bytes.get(delivery));
+    }
+
+    private static Counter response(MeterRegistry meterRegistry, String status) {
+        return Counter.builder("video.stream.responses").tag("status", status).register(meterRegistry);
+    }
+
+    private static final class MeteredChannel implements WritableByteChannel {
+
+        private final WritableByteChannel target;
+        private final Timer ttfb;
+        private final Counter bytes;
+        private final long startedNanos;
+        private boolean firstWritten;
+
+        private MeteredChannel(WritableByteChannel target, long startedNanos, Timer ttfb, Counter bytes) {
+            this.target = target;
+            this.startedNanos = startedNanos;
+            this.ttfb = ttfb;
+            this.bytes = bytes;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            int written = target.write(src);
+            if (!firstWritten && written > 0) {
+                ttfb.record(System.nanoTime() - startedNanos, TimeUnit.NANOSECONDS);
+                firstWritten = true;
+            }
+            bytes.increment(written);
+            return written;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return target.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            target.close();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+
+package com.example.playback.streaming;
+
+import com.example.playback.storage.StoredObject;
+import org.springframework.http.MediaType;
+
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Validators and location of a resolved video file.
+ */
+public record VideoFileMetadata(String videoId, StoredObject object, MediaType contentType, String etag) {
+
+    public static VideoFileMetadata of(String videoId, StoredObject object, MediaType contentType) {
+        String etag = "\"" + Long.toHexString(object.length()) + "-" + Long.toHexString(object.lastModified()) + "\"";
+        return new VideoFileMetadata(videoId, object, contentType, etag);
+    }
+
+    public long length() {
+        return object.length();
+    }
+
+    public long lastModified() {
+        return object.lastModified();
+    }
+
+    /**
+     * Evaluates an {@code If-Range} validator: a strong ETag must match exactly, an
+     * HTTP-date must equal Last-Modified at second precision.
+     */
+    public boolean matchesIfRange(String ifRange) {
+        String value = ifRange.trim();
+        if (value.startsWith("\"")) {
+            return value.equals(etag);
+        }
+        if (value.startsWith("W/")) {
+            return false;
+        }
+        try {
+            Instant date = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+            return date.getEpochSecond() == lastModified() / 1000;
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+}
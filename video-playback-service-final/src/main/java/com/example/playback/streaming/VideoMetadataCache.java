@@ -0,0 +1,132 @@
+
+package com.example.playback.streaming;
+
+import com.example.playback.storage.StoredObject;
+import com.example.playback.storage.VideoStorage;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches size, modification time and ETag of resolved video files so range requests
+ * do not stat the file, or send a HEAD to the object store, every time. After
+ * {@code revalidate-interval} the next request still gets the cached entry while one
+ * background re-check runs, however many requests arrive meanwhile; a changed size or mtime
+ * produces a new ETag and drops the title's cached segments. When re-checks keep failing an
+ * entry is dropped after {@code max-staleness}. At most {@code max-entries} files are kept.
+ * Statistics are published as {@code cache.*} metrics.
+ */
+@Component
+public class VideoMetadataCache {
+
+    private static final Logger log = LoggerFactory.getLogger(VideoMetadataCache.class);
+
+    private final LoadingCache<ResolvedVideo, VideoFileMetadata> entries;
+    private final SegmentCache segmentCache;
+    private final VideoStorage storage;
+    private final ThreadPoolExecutor executor;
+
+    public VideoMetadataCache(
+            SegmentCache segmentCache,
+            VideoStorage storage,
+            @Value("${video.metadata.revalidate-interval:5s}") Duration revalidateInterval,
+            @Value("${video.metadata.max-staleness:1m}") Duration maxStaleness,
+            @Value("${video.metadata.max-entries:10000}") int maxEntries,
+            @Value("${video.metadata.refresh-threads:2}") int refreshThreads,
+            MeterRegistry meterRegistry) {
+        this.segmentCache = segmentCache;
+        this.storage = storage;
+
+        // Re-checks block on the file system or the object store, so they get their own threads;
+        // when those are busy the request that noticed the stale entry re-checks it itself
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("metadata-refresh-");
+        threadFactory.setDaemon(true);
+        this.executor = new ThreadPoolExecutor(refreshThreads, refreshThreads, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(refreshThreads * 64), threadFactory, new ThreadPoolExecutor.CallerRunsPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+
+        this.entries = Caffeine.newBuilder()
+                .refreshAfterWrite(revalidateInterval)
+                .expireAfterWrite(maxStaleness.compareTo(revalidateInterval) > 0 ? maxStaleness : revalidateInterval)
+                .maximumSize(maxEntries)
+                .executor(executor)
+                .recordStats()
+                .build(new CacheLoader<>() {
+                    @Override
+                    public VideoFileMetadata load(ResolvedVideo video) throws IOException {
+                        return stat(video);
+                    }
+
+                    @Override
+                    public VideoFileMetadata reload(ResolvedVideo video, VideoFileMetadata previous) throws IOException {
+                        return revalidate(video, previous);
+                    }
+                });
+        CaffeineCacheMetrics.monitor(meterRegistry, entries, "video.metadata");
+    }
+
+    /**
+     * Returns the metadata for the resolved video's file, or {@code null} when the file does
+     * not exist.
+     */
+    public VideoFileMetadata get(ResolvedVideo video) throws IOException {
+        try {
+            return entries.get(video);
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    public void invalidate(String videoId) {
+        entries.asMap().keySet().removeIf(video -> video.videoId().equals(videoId));
+        segmentCache.invalidate(videoId);
+    }
+
+    public void invalidateAll() {
+        Set<String> videoIds = new HashSet<>();
+        entries.asMap().keySet().forEach(video -> videoIds.add(video.videoId()));
+        entries.invalidateAll();
+        videoIds.forEach(segmentCache::invalidate);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private VideoFileMetadata revalidate(ResolvedVideo video, VideoFileMetadata previous) throws IOException {
+        VideoFileMetadata current = stat(video);
+        if (current == null) {
+            segmentCache.invalidate(video.videoId());
+        } else if (!current.etag().equals(previous.etag())) {
+            log.info("Video file {} changed in storage, invalidating cached segments", video.videoId());
+            segmentCache.invalidate(video.videoId());
+        }
+        return current;
+    }
+
+    private VideoFileMetadata stat(ResolvedVideo video) throws IOException {
+        StoredObject object = storage.stat(video.key());
+        return object != null ? VideoFileMetadata.of(video.videoId(), object, video.contentType()) : null;
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.playback.streaming;
+
+import com.example.playback.entity.Video;
+import com.example.playback.exception.ResourceNotFoundException;
+import com.example.playback.exception.VideoStreamingException;
+import com.example.playback.repository.VideoRepository;
+import com.example.playback.storage.VideoStorage;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.CaffeineSpec;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Maps a video id, and optionally a quality, to the storage key to serve using the
+ * {@code videos} table. Results are kept in a near cache so range requests skip the lookup
+ * and path checks; entries expire per {@code video.resolver.cache} and can be dropped with
+ * {@link #invalidate(String)} after the table changes.
+ * <p>
+ * A {@code filePath} is turned into a key by the {@link VideoStorage}. Ids without a row or
+ * without a file path fall back to the key {@code <videoId>.mp4}. Quality variants
+ * are rows sharing a {@code titleId}; the title's own row counts as one of them.
+ */
+@Component
+public class VideoResolver {
+
+    private static final MediaType DEFAULT_CONTENT_TYPE = MediaType.valueOf("video/mp4");
+
+    private record Key(String videoId, String quality) {
+    }
+
+    private final VideoRepository videoRepository;
+    private final VideoMetadataCache metadataCache;
+    private final VideoStorage storage;
+    private final LoadingCache<Key, ResolvedVideo> cache;
+
+    public VideoResolver(
+            VideoRepository videoRepository,
+            VideoMetadataCache metadataCache,
+            VideoStorage storage,
+            @Value("${video.resolver.cache:maximumSize=10000,expireAfterWrite=5m}") String cacheSpec,
+            MeterRegistry meterRegistry) {
+        this.videoRepository = videoRepository;
+        this.metadataCache = metadataCache;
+        this.storage = storage;
+        this.cache = Caffeine.from(CaffeineSpec.parse(cacheSpec))
+                .recordStats()
+                .build(this::load);
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "video.resolver");
+    }
+
+    public ResolvedVideo resolve(String videoId) {
+        return resolve(videoId, null);
+    }
+
+    /**
+     * Resolves {@code videoId}, or its {@code quality} variant when one is asked for.
+     *
+     * @throws ResourceNotFoundException if the title has no variant of that quality
+     * @throws VideoStreamingException   if the stored path points outside the storage root
+     */
+    public ResolvedVideo resolve(String videoId, String quality) {
+        return cache.get(new Key(videoId, quality == null || quality.isBlank() ? null : quality));
+    }
+
+    /**
+     * Forgets the resolution of {@code videoId} and its variants, and the file metadata of
+     * what it resolved to.
+     */
+    public void invalidate(String videoId) {
+        cache.asMap().forEach((key, resolved) -> {
+            if (key.videoId().equals(videoId) || resolved.videoId().equals(videoId)
+                    || videoId.equals(resolved.titleId())) {
+                cache.invalidate(key);
+                metadataCache.invalidate(resolved.videoId());
+            }
+        });
+        metadataCache.invalidate(videoId);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+        metadataCache.invalidateAll();
+    }
+
+    private ResolvedVideo load(Key key) {
+        Video video = videoRepository.findById(key.videoId()).orElse(null);
+        if (key.quality() == null || (video != null && key.quality().equals(video.getQuality()))) {
+            return video != null ? toResolved(video) : fallback(key.videoId());
+        }
+        String titleId = video != null && video.getTitleId() != null ? video.getTitleId() : key.videoId();
+        return videoRepository.findVariant(titleId, key.quality())
+                .map(this::toResolved)
+                .orElseThrow(() -> new ResourceNotFoundException(
+                        "No " + key.quality() + " variant of video " + key.videoId()));
+    }
+
+    private ResolvedVideo toResolved(Video video) {
+        String key = video.getFilePath() == null || video.getFilePath().isBlank()
+                ? defaultKey(video.getId())
+                : storage.keyOf(video.getFilePath());
+        String titleId = video.getTitleId() != null ? video.getTitleId() : video.getId();
+        return new ResolvedVideo(video.getId(), titleId, video.getQuality(), key,
+                contentType(video.getMimeType(), key), video.getDuration());
+    }
+
+    private static MediaType contentType(String mimeType, String key) {
+        if (mimeType != null && !mimeType.isBlank()) {
+            try {
+                return MediaType.parseMediaType(mimeType);
+            } catch (InvalidMediaTypeException e) {
+                // Fall through to a guess from the file name
+            }
+        }
+        return MediaTypeFactory.getMediaType(key.substring(key.lastIndexOf('/') + 1)).orElse(DEFAULT_CONTENT_TYPE);
+    }
+
+    private ResolvedVideo fallback(String videoId) {
+        return new ResolvedVideo(videoId, videoId, null, defaultKey(videoId), DEFAULT_CONTENT_TYPE, null);
+    }
+
+    private String defaultKey(String videoId) {
+        return storage.keyOf(videoId + ".mp4");
+    }
+}
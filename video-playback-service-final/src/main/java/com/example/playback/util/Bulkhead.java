@@ -0,0 +1,87 @@
+
+package com.example.playback.util;
+
+import com.example.playback.exception.ServiceBusyException;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Caps how many callers may use a shared resource at once. Once request threads are
+ * virtual the servlet thread pool no longer bounds disk or downstream concurrency, so
+ * those paths take a permit here instead. Callers that cannot get one within
+ * {@code maxWait} are rejected with {@link ServiceBusyException}.
+ */
+public class Bulkhead {
+
+    @FunctionalInterface
+    public interface Action<T, E extends Exception> {
+        T run() throws E;
+    }
+
+    /**
+     * A permit held beyond the calling method, e.g. for the lifetime of a streamed response.
+     * Closing it more than once releases it only once.
+     */
+    @FunctionalInterface
+    public interface Permit extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private final String name;
+    private final int maxConcurrent;
+    private final Semaphore permits;
+    private final long maxWaitNanos;
+
+    public Bulkhead(String name, int maxConcurrent, Duration maxWait) {
+        this.name = name;
+        this.maxConcurrent = maxConcurrent;
+        this.permits = new Semaphore(maxConcurrent);
+        this.maxWaitNanos = maxWait.toNanos();
+    }
+
+    public <T, E extends Exception> T call(Action<T, E> action) throws E {
+        acquire();
+        try {
+            return action.run();
+        } finally {
+            permits.release();
+        }
+    }
+
+    public Permit enter() {
+        acquire();
+        AtomicBoolean released = new AtomicBoolean();
+        return () -> {
+            if (released.compareAndSet(false, true)) {
+                permits.release();
+            }
+        };
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public int getInUse() {
+        return maxConcurrent - permits.availablePermits();
+    }
+
+    private void acquire() {
+        try {
+            if (!permits.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS)) {
+                throw new ServiceBusyException("Too many concurrent " + name + " operations, try again later");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceBusyException("Interrupted while waiting for " + name + " capacity");
+        }
+    }
+}
@@ -0,0 +1,124 @@
+
+package com.example.playback.util;
+
+import java.util.Arrays;
+
+/**
+ * Count-based circuit breaker. Opens when at least {@code failureRateThreshold} of the last
+ * {@code windowSize} calls failed (once {@code minimumCalls} have been seen), rejects calls
+ * for {@code openNanos}, then lets a single trial call through: success closes it again,
+ * failure re-opens it.
+ */
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final String name;
+    private final boolean[] failures;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long openNanos;
+
+    private State state = State.CLOSED;
+    private int next;
+    private int calls;
+    private int failed;
+    private long openedAt;
+    private boolean trialInFlight;
+
+    public CircuitBreaker(String name, int windowSize, int minimumCalls, double failureRateThreshold,
+                          long openNanos) {
+        this.name = name;
+        this.failures = new boolean[windowSize];
+        this.minimumCalls = minimumCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.openNanos = openNanos;
+    }
+
+    /**
+     * Returns whether a call may proceed. Every permitted call must be followed by exactly one
+     * of {@link #onSuccess()}, {@link #onFailure()} or {@link #onIgnored()}.
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAt < openNanos) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+            trialInFlight = false;
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialInFlight) {
+                return false;
+            }
+            trialInFlight = true;
+        }
+        return true;
+    }
+
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            reset();
+            return;
+        }
+        record(false);
+    }
+
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            open();
+            return;
+        }
+        record(true);
+        if (calls >= minimumCalls && (double) failed / calls >= failureRateThreshold) {
+            open();
+        }
+    }
+
+    /**
+     * Ends a permitted call whose outcome says nothing about the downstream's health.
+     */
+    public synchronized void onIgnored() {
+        if (state == State.HALF_OPEN) {
+            trialInFlight = false;
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    private void record(boolean failure) {
+        if (calls == failures.length) {
+            if (failures[next]) {
+                failed--;
+            }
+        } else {
+            calls++;
+        }
+        failures[next] = failure;
+        if (failure) {
+            failed++;
+        }
+        next = (next + 1) % failures.length;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = System.nanoTime();
+        trialInFlight = false;
+    }
+
+    private void reset() {
+        state = State.CLOSED;
+        next = 0;
+        calls = 0;
+        failed = 0;
+        trialInFlight = false;
+        Arrays.fill(failures, false);
+    }
+}
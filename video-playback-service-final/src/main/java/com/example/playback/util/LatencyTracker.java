@@ -0,0 +1,60 @@
+
+package com.example.playback.util;
+
+import java.util.Arrays;
+
+/**
+ * Percentiles over the most recent {@code capacity} latency samples. Percentiles are
+ * recomputed at most once a second, so reading them on every call is cheap.
+ */
+public class LatencyTracker {
+
+    private static final long RECOMPUTE_NANOS = 1_000_000_000L;
+
+    private final long[] samples;
+    private int next;
+    private int size;
+
+    private volatile double cachedQuantile = -1;
+    private volatile long cachedValue = -1;
+    private volatile long computedAt;
+
+    public LatencyTracker(int capacity) {
+        this.samples = new long[capacity];
+    }
+
+    public synchronized void record(long nanos) {
+        samples[next] = nanos;
+        next = (next + 1) % samples.length;
+        if (size < samples.length) {
+            size++;
+        }
+    }
+
+    public synchronized int getSampleCount() {
+        return size;
+    }
+
+    /**
+     * Returns the {@code quantile} (0..1) of recent samples in nanoseconds, or -1 without samples.
+     */
+    public long percentile(double quantile) {
+        long now = System.nanoTime();
+        if (cachedQuantile == quantile && now - computedAt < RECOMPUTE_NANOS) {
+            return cachedValue;
+        }
+        long[] snapshot;
+        synchronized (this) {
+            snapshot = Arrays.copyOf(samples, size);
+        }
+        long value = -1;
+        if (snapshot.length > 0) {
+            Arrays.sort(snapshot);
+            value = snapshot[Math.min(snapshot.length - 1, (int) Math.ceil(quantile * snapshot.length) - 1)];
+        }
+        cachedValue = value;
+        cachedQuantile = quantile;
+        computedAt = now;
+        return value;
+    }
+}